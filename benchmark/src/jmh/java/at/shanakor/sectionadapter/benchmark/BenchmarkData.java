@@ -0,0 +1,86 @@
+package at.shanakor.sectionadapter.benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import at.shanakor.sectionadapter.GroupSorter;
+import at.shanakor.sectionadapter.Grouper;
+
+/**
+ * Generates the values of the benchmarks. Every value belongs to one of about sqrt(size) groups, which are either
+ * equally large or heavily skewed (a few huge groups followed by a long tail of small ones).
+ */
+public final class BenchmarkData {
+    public enum Distribution {
+        UNIFORM,
+        SKEWED
+    }
+
+    public static final class Item {
+        final int group;
+        final int rank;
+
+        Item(int group, int rank) {
+            this.group = group;
+            this.rank = rank;
+        }
+    }
+
+    static final Grouper<Integer, Item> GROUPER = new Grouper<Integer, Item>() {
+        @Override
+        public Integer getGroupFrom(Item value) {
+            return value.group;
+        }
+    };
+
+    static final Comparator<Item> BY_RANK = new Comparator<Item>() {
+        @Override
+        public int compare(Item lhs, Item rhs) {
+            return lhs.rank < rhs.rank ? -1 : (lhs.rank == rhs.rank ? 0 : 1);
+        }
+    };
+
+    static final GroupSorter<Integer, Item, String> GROUP_SORTER = new GroupSorter<Integer, Item, String>() {
+        @Override
+        public Grouper<Integer, Item> getSortableGrouper() {
+            return GROUPER;
+        }
+
+        @Override
+        public Comparator<Map.Entry<Integer, List<Item>>> getComparator() {
+            return new Comparator<Map.Entry<Integer, List<Item>>>() {
+                @Override
+                public int compare(Map.Entry<Integer, List<Item>> lhs, Map.Entry<Integer, List<Item>> rhs) {
+                    return lhs.getKey().compareTo(rhs.getKey());
+                }
+            };
+        }
+
+        @Override
+        public String getKeyDisplayFromKey(Integer key) {
+            return "Group " + key;
+        }
+    };
+
+    private BenchmarkData() {
+    }
+
+    static List<Item> createItems(int size, Distribution distribution) {
+        Random random = new Random(size);
+        int groupCount = Math.max(1, (int) Math.sqrt(size));
+
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int group = distribution == Distribution.UNIFORM
+                    ? random.nextInt(groupCount)
+                    : (int) (groupCount * Math.pow(random.nextDouble(), 4));
+
+            items.add(new Item(group, random.nextInt(size)));
+        }
+
+        return items;
+    }
+}
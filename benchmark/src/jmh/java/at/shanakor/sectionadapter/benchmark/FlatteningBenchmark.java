@@ -0,0 +1,47 @@
+package at.shanakor.sectionadapter.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import at.shanakor.sectionadapter.CollectionHelper;
+import at.shanakor.sectionadapter.SectionIndex;
+
+/**
+ * Flattening grouped data into the rows of the adapters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlatteningBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SKEWED"})
+    public BenchmarkData.Distribution distribution;
+
+    @Param({"false", "true"})
+    public boolean useCustomChildDividers;
+
+    private LinkedHashMap<Integer, List<BenchmarkData.Item>> groupedData;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        groupedData = CollectionHelper.groupKeysByValue(BenchmarkData.createItems(size, distribution), BenchmarkData.GROUPER);
+    }
+
+    @Benchmark
+    public SectionIndex<Integer, BenchmarkData.Item> flatten() {
+        return new SectionIndex<>(groupedData, useCustomChildDividers);
+    }
+}
@@ -0,0 +1,68 @@
+package at.shanakor.sectionadapter.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import at.shanakor.sectionadapter.CollectionHelper;
+
+/**
+ * The overloads of {@link CollectionHelper#groupKeysByValue}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GroupingBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SKEWED"})
+    public BenchmarkData.Distribution distribution;
+
+    private List<BenchmarkData.Item> items;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        items = BenchmarkData.createItems(size, distribution);
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public LinkedHashMap<Integer, List<BenchmarkData.Item>> group() {
+        return CollectionHelper.groupKeysByValue(items, BenchmarkData.GROUPER);
+    }
+
+    @Benchmark
+    public LinkedHashMap<Integer, List<BenchmarkData.Item>> groupAndSortValues() {
+        return CollectionHelper.groupKeysByValue(items, BenchmarkData.GROUPER, BenchmarkData.BY_RANK);
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, List<BenchmarkData.Item>> groupAndSortValuesAndGroups() {
+        return CollectionHelper.groupKeysByValue(items, BenchmarkData.GROUPER, BenchmarkData.BY_RANK, BenchmarkData.GROUP_SORTER);
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, List<BenchmarkData.Item>> groupAndSortValuesAndGroupsInParallel() {
+        return CollectionHelper.groupKeysByValue(items, BenchmarkData.GROUPER, BenchmarkData.BY_RANK, BenchmarkData.GROUP_SORTER, executor);
+    }
+}
@@ -0,0 +1,78 @@
+package at.shanakor.sectionadapter.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import at.shanakor.sectionadapter.CollectionHelper;
+import at.shanakor.sectionadapter.SectionIndex;
+
+/**
+ * The lookups behind the SectionIndexer of {@code SectionAdapterWithFastScroll} and the binding of rows.
+ * The adapter itself needs Android, so its index is benchmarked directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SectionLookupBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SKEWED"})
+    public BenchmarkData.Distribution distribution;
+
+    private SectionIndex<Integer, BenchmarkData.Item> index;
+    private int[] positions;
+    private int[] sections;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new SectionIndex<>(CollectionHelper.groupKeysByValue(BenchmarkData.createItems(size, distribution), BenchmarkData.GROUPER), false);
+
+        Random random = new Random(size);
+        positions = new int[LOOKUPS];
+        sections = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            positions[i] = random.nextInt(index.getRowCount());
+            sections[i] = random.nextInt(index.getSectionCount());
+        }
+    }
+
+    @Benchmark
+    public int getSectionForPosition() {
+        int sum = 0;
+        for (int position : positions)
+            sum += index.getSectionForPosition(position);
+
+        return sum;
+    }
+
+    @Benchmark
+    public int getPositionForSection() {
+        int sum = 0;
+        for (int section : sections)
+            sum += index.getPositionForSection(section);
+
+        return sum;
+    }
+
+    @Benchmark
+    public int getGlobalChildPosition() {
+        int sum = 0;
+        for (int position : positions)
+            sum += index.getGlobalChildPosition(position);
+
+        return sum;
+    }
+}
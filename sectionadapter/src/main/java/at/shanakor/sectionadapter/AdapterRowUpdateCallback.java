@@ -0,0 +1,34 @@
+package at.shanakor.sectionadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Forwards row updates to the {@code notifyItem*} methods of a RecyclerView adapter.
+ */
+class AdapterRowUpdateCallback implements RowUpdateCallback {
+    private final RecyclerView.Adapter<?> adapter;
+
+    AdapterRowUpdateCallback(RecyclerView.Adapter<?> adapter) {
+        this.adapter = adapter;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+        adapter.notifyItemRangeInserted(position, count);
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        adapter.notifyItemRangeRemoved(position, count);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        adapter.notifyItemMoved(fromPosition, toPosition);
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+        adapter.notifyItemRangeChanged(position, count, payload);
+    }
+}
@@ -0,0 +1,18 @@
+package at.shanakor.sectionadapter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A {@link GroupedDataProvider} which can abort loading if the load has been superseded by a newer one.
+ * Adapters which load asynchronously call {@link #getData(CancellationToken)} instead of {@link #getData()}.
+ */
+public interface CancellableGroupedDataProvider<K, V> extends GroupedDataProvider<K, V> {
+    /**
+     * Is called on a background thread.
+     * @param token Check {@link CancellationToken#isCancelled()} regularly. The returned data of a cancelled load is discarded,
+     *              so it is fine to return null once cancelled.
+     * @return The correctly grouped data. You can use {@link CollectionHelper} for this purpose.
+     */
+    LinkedHashMap<K, List<V>> getData(CancellationToken token);
+}
@@ -0,0 +1,17 @@
+package at.shanakor.sectionadapter;
+
+/**
+ * Signals that the result of a background operation is no longer needed, e.g. because a newer refresh has been started.
+ * Long running work should check {@link #isCancelled()} regularly and return early.
+ */
+public class CancellationToken {
+    private volatile boolean cancelled = false;
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+}
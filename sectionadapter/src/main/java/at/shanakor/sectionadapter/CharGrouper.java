@@ -0,0 +1,12 @@
+package at.shanakor.sectionadapter;
+
+/**
+ * Like a {@link Grouper}, but for char keys (initials), which does not box a key per value.
+ * @see CollectionHelper#groupCharKeysByValue(java.util.List, CharGrouper)
+ */
+public interface CharGrouper<V> {
+    /**
+     * @return The key which you want your values to be grouped by.
+     */
+    char getGroupFrom(V value);
+}
@@ -0,0 +1,106 @@
+package at.shanakor.sectionadapter;
+
+/**
+ * Translates updates of a single section's children into updates of the flattened rows,
+ * including the section's childDivider rows.
+ * The section's start and child count are tracked while the updates are dispatched.
+ */
+class ChildUpdateTranslator implements RowUpdateCallback {
+    private final RowUpdateCallback target;
+    private final boolean useCustomChildDividers;
+    private int sectionStart;
+    private int childCount;
+
+    ChildUpdateTranslator(RowUpdateCallback target, boolean useCustomChildDividers) {
+        this.target = target;
+        this.useCustomChildDividers = useCustomChildDividers;
+    }
+
+    /**
+     * @param sectionStart The current row of the section's header.
+     * @param childCount The current number of children inside the section.
+     */
+    ChildUpdateTranslator forSection(int sectionStart, int childCount) {
+        this.sectionStart = sectionStart;
+        this.childCount = childCount;
+        return this;
+    }
+
+    int getSectionStart() {
+        return sectionStart;
+    }
+
+    int getChildCount() {
+        return childCount;
+    }
+
+    /**
+     * @return The number of rows the section currently occupies.
+     */
+    int getRowCount() {
+        return SectionIndex.rowsFor(childCount, useCustomChildDividers);
+    }
+
+    private int rowOf(int child) {
+        return sectionStart + 1 + (useCustomChildDividers ? 2 * child : child);
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+        if(count == 0)
+            return;
+
+        if(!useCustomChildDividers)
+            target.onInserted(rowOf(position), count);
+        else if(childCount == 0)
+            target.onInserted(sectionStart + 1, 2 * count - 1);
+        else if(position == 0)
+            target.onInserted(sectionStart + 1, 2 * count);
+        else
+            target.onInserted(rowOf(position) - 1, 2 * count);
+
+        childCount += count;
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        if(count == 0)
+            return;
+
+        if(!useCustomChildDividers)
+            target.onRemoved(rowOf(position), count);
+        else if(count == childCount)
+            target.onRemoved(sectionStart + 1, 2 * count - 1);
+        else if(position == 0)
+            target.onRemoved(sectionStart + 1, 2 * count);
+        else
+            target.onRemoved(rowOf(position) - 1, 2 * count);
+
+        childCount -= count;
+    }
+
+    /**
+     * Moves the child's row. With childDividers the orphaned divider is moved as well, so the rows keep alternating.
+     */
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        if(fromPosition == toPosition)
+            return;
+
+        target.onMoved(rowOf(fromPosition), rowOf(toPosition));
+        if(useCustomChildDividers) {
+            if(fromPosition < toPosition)
+                target.onMoved(rowOf(fromPosition), rowOf(toPosition) - 1);
+            else
+                target.onMoved(rowOf(fromPosition), rowOf(toPosition) + 1);
+        }
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+        if(count == 0)
+            return;
+
+        target.onChanged(rowOf(position), useCustomChildDividers ? 2 * count - 1 : count, payload);
+    }
+}
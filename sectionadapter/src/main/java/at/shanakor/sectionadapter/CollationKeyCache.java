@@ -0,0 +1,168 @@
+package at.shanakor.sectionadapter;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sorts values or group keys by a locale-aware {@link Collator} without collating the same text O(n log n) times.
+ * The {@link CollationKey} of every text is computed once and sorted on afterwards
+ * (see {@link CollectionHelper#groupKeysByValue(List, Grouper, CollationKeyCache, CollationKeyCache)}).
+ * <p>
+ * The keys are cached by their text, so the keys of unchanged values are reused by the next refresh.
+ * Call {@link #sweep()} after a refresh to drop the keys which have not been used since the previous sweep.
+ * All methods are synchronized, so the cache can be shared by the loads of an adapter.
+ */
+public class CollationKeyCache<T> {
+    /**
+     * Determines the text an item is sorted by, e.g. the display name of a contact.
+     */
+    public interface TextExtractor<T> {
+        String getText(T item);
+    }
+
+    private final Collator collator;
+    private final TextExtractor<T> textExtractor;
+    private final HashMap<String, Entry> keys = new HashMap<>();
+    private int generation = 0;
+
+    /**
+     * @param collator The collator of the user's locale, e.g. {@code Collator.getInstance()}. It is only used by this cache afterwards.
+     * @param textExtractor Determines the text of every item.
+     */
+    public CollationKeyCache(Collator collator, TextExtractor<T> textExtractor) {
+        if(collator == null)
+            throw new IllegalArgumentException("The parameter 'collator' can not be null!");
+        if(textExtractor == null)
+            throw new IllegalArgumentException("The parameter 'textExtractor' can not be null!");
+
+        this.collator = collator;
+        this.textExtractor = textExtractor;
+    }
+
+    /**
+     * @return The cached collation key of the given item's text.
+     */
+    public synchronized CollationKey getKey(T item) {
+        String text = textExtractor.getText(item);
+        if(text == null)
+            text = "";
+
+        Entry entry = keys.get(text);
+        if(entry == null) {
+            entry = new Entry(collator.getCollationKey(text));
+            keys.put(text, entry);
+        }
+
+        entry.generation = generation;
+        return entry.key;
+    }
+
+    /**
+     * @return A comparator which compares the cached keys, e.g. as the valueComparator of existing code.
+     *         Every comparison still looks up both keys, so prefer the {@link CollectionHelper} overloads.
+     */
+    public Comparator<T> comparator() {
+        return new Comparator<T>() {
+            @Override
+            public int compare(T lhs, T rhs) {
+                return getKey(lhs).compareTo(getKey(rhs));
+            }
+        };
+    }
+
+    /**
+     * @return A comparator of groups by their keys, e.g. for {@link GroupSorter#getComparator()}.
+     */
+    public <L> Comparator<Map.Entry<T, L>> entryComparator() {
+        return new Comparator<Map.Entry<T, L>>() {
+            @Override
+            public int compare(Map.Entry<T, L> lhs, Map.Entry<T, L> rhs) {
+                return getKey(lhs.getKey()).compareTo(getKey(rhs.getKey()));
+            }
+        };
+    }
+
+    /**
+     * Sorts the given items by their keys, looking up every key once. The sort is stable.
+     * @return The positions of the items in their sorted order.
+     */
+    public int[] sortedOrder(List<T> items) {
+        Decorated[] decorated = new Decorated[items.size()];
+        synchronized (this) {
+            int i = 0;
+            for (T item : items) {
+                decorated[i] = new Decorated(getKey(item), i);
+                i++;
+            }
+        }
+
+        Arrays.sort(decorated);
+
+        int[] order = new int[decorated.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = decorated[i].position;
+
+        return order;
+    }
+
+    /**
+     * @return A sorted copy of the given items, which leaves them untouched.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> sortedCopy(List<T> items) {
+        Object[] array = items.toArray();
+        int[] order = sortedOrder(items);
+
+        Object[] sorted = new Object[array.length];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = array[order[i]];
+
+        return (List<T>) Arrays.asList(sorted);
+    }
+
+    /**
+     * Drops all keys which have not been used since the previous sweep.
+     */
+    public synchronized void sweep() {
+        for (Iterator<Entry> iterator = keys.values().iterator(); iterator.hasNext(); ) {
+            if(iterator.next().generation != generation)
+                iterator.remove();
+        }
+
+        generation++;
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    private static final class Entry {
+        final CollationKey key;
+        int generation;
+
+        Entry(CollationKey key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Decorated implements Comparable<Decorated> {
+        final CollationKey key;
+        final int position;
+
+        Decorated(CollationKey key, int position) {
+            this.key = key;
+            this.position = position;
+        }
+
+        @Override
+        public int compareTo(Decorated another) {
+            return key.compareTo(another.key);
+        }
+    }
+}
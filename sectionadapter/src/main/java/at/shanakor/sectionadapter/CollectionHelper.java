@@ -1,16 +1,29 @@
 package at.shanakor.sectionadapter;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Created by nikla on 21.03.2016.
+ * <p>
+ * All methods leave the given values untouched. Every value is hashed once and every group list is allocated with its final size.
  */
 public abstract class CollectionHelper {
+    /**
+     * The default number of values from which on the executor overloads sort and group in parallel.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 8192;
+    /** The number of groups the grouping tables are sized for without a hint, which bounds the memory of unused slots. */
+    static final int MAX_EXPECTED_GROUPS = 1024;
+
     /**
      * Groups the given values by their keys.
      * @param values A list of values.
@@ -23,23 +36,25 @@ public abstract class CollectionHelper {
         if(grouper == null)
             throw new IllegalArgumentException("The parameter 'grouper' can not be null!");
 
-        LinkedHashMap<K, List<V>> hashMap = new LinkedHashMap<>();
-
-        K key;
-        for (V value : values) {
-            key = grouper.getGroupFrom(value);
-
-            if (!hashMap.containsKey(key)) {
-                List<V> list = new ArrayList<>();
-                list.add(value);
+        return group(values, grouper).toMap();
+    }
 
-                hashMap.put(key, list);
-            }
-            else
-                hashMap.get(key).add(value);
-        }
+    /**
+     * Groups the given values by their keys, sizing the grouping tables for the expected number of groups up front.
+     * @param values A list of values.
+     * @param grouper A {@link Grouper} to determine by what property the values should be grouped.
+     * @param expectedGroupCount The expected number of groups, e.g. the number of distinct keys of the previous load.
+     * @return The correctly grouped data.
+     */
+    public static <K, V> LinkedHashMap<K, List<V>> groupKeysByValue(List<V> values, Grouper<K, V> grouper, int expectedGroupCount){
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(grouper == null)
+            throw new IllegalArgumentException("The parameter 'grouper' can not be null!");
+        if(expectedGroupCount < 0)
+            throw new IllegalArgumentException("The parameter 'expectedGroupCount' can not be negative!");
 
-        return hashMap;
+        return group(values, grouper, expectedGroupCount).toMap();
     }
 
     /**
@@ -50,11 +65,14 @@ public abstract class CollectionHelper {
      * @return The correctly grouped and sorted data.
      */
     public static <K, V> LinkedHashMap<K, List<V>> groupKeysByValue(List<V> values, Grouper<K, V> grouper, Comparator<V> valueComparator){
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(grouper == null)
+            throw new IllegalArgumentException("The parameter 'grouper' can not be null!");
         if(valueComparator == null)
             throw new IllegalArgumentException("The parameter 'valueComparator' can not be null!");
 
-        Collections.sort(values, valueComparator);
-        return groupKeysByValue(values, grouper);
+        return group(sortedCopy(values, valueComparator), grouper).toMap();
     }
 
     /**
@@ -66,38 +84,351 @@ public abstract class CollectionHelper {
      * @return The correctly grouped and sorted data.
      */
     public static <K, V, KD> LinkedHashMap<KD, List<V>> groupKeysByValue(List<V> values, Grouper<K, V> valueGrouper, Comparator<V> valueComparator, GroupSorter<K, V, KD> groupSorter){
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
         if(groupSorter == null)
             throw new IllegalArgumentException("The parameter 'groupSorter' can not be null!");
 
-        Collections.sort(values, valueComparator);
+        return group(sortedCopy(values, valueComparator), groupSorter.getSortableGrouper()).toSortedDisplayMap(groupSorter);
+    }
+
+    /**
+     * Groups the given values by their keys and sorts the values and groups by their collation keys, which are computed
+     * (respectively taken from the cache) once per value and once per group instead of once per comparison.
+     * @param values A list of values.
+     * @param grouper A {@link Grouper} to determine by what property the values should be grouped.
+     * @param valueKeys The collation keys which determine how the values are going to be sorted. (Sorting only appears group internal)
+     * @param groupKeys The collation keys which determine how the groups are going to be sorted or null to order them by their first value.
+     * @return The correctly grouped and sorted data.
+     */
+    public static <K, V> LinkedHashMap<K, List<V>> groupKeysByValue(List<V> values, Grouper<K, V> grouper, CollationKeyCache<V> valueKeys, CollationKeyCache<K> groupKeys){
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(grouper == null)
+            throw new IllegalArgumentException("The parameter 'grouper' can not be null!");
+        if(valueKeys == null)
+            throw new IllegalArgumentException("The parameter 'valueKeys' can not be null!");
 
-        LinkedHashMap<K, List<V>> groupedDataBySortingCriteria = groupKeysByValue(values, groupSorter.getSortableGrouper());
-        LinkedHashMap<K, List<V>> sortedGroupedDataBySortingCriteria = sortGroupedDataByKeys(groupedDataBySortingCriteria, groupSorter.getComparator());
-        return replaceKeysWithDisplayable(sortedGroupedDataBySortingCriteria, groupSorter);
+        Groups<K, V> groups = group(valueKeys.sortedCopy(values), grouper);
+        return groupKeys == null ? groups.toMap() : groups.toCollatedMap(groupKeys);
     }
 
-    private static <KD, V, K> LinkedHashMap<KD, List<V>> replaceKeysWithDisplayable(LinkedHashMap<K, List<V>> groupedDataBySortingCriteria, GroupSorter<K, V, KD> groupSorter) {
-        List<Map.Entry<K, List<V>>> entries = new ArrayList<>(groupedDataBySortingCriteria.entrySet());
+    /**
+     * Like {@link #groupKeysByValue(List, Grouper, Comparator)}, but sorts and groups large lists on the given executor
+     * using one chunk per available processor. The result is identical to the sequential one.
+     * @param executor The executor which sorts and groups the chunks, which should not be the one running the caller. The calling thread
+     * processes one chunk itself and then every chunk the executor has not started yet, so such an executor only loses the parallelism
+     * instead of deadlocking.
+     */
+    public static <K, V> LinkedHashMap<K, List<V>> groupKeysByValue(List<V> values, Grouper<K, V> grouper, Comparator<V> valueComparator, Executor executor){
+        return groupKeysByValue(values, grouper, valueComparator, executor, DEFAULT_PARALLEL_THRESHOLD);
+    }
 
-        LinkedHashMap<KD, List<V>> displayableMap = new LinkedHashMap<>();
-        for (Map.Entry<K, List<V>> entry : entries) {
-            displayableMap.put(groupSorter.getKeyDisplayFromKey(entry.getKey()), entry.getValue());
-        }
+    /**
+     * @param parallelThreshold Lists with less values are sorted and grouped sequentially on the calling thread.
+     * @see #groupKeysByValue(List, Grouper, Comparator, Executor)
+     */
+    public static <K, V> LinkedHashMap<K, List<V>> groupKeysByValue(List<V> values, Grouper<K, V> grouper, Comparator<V> valueComparator, Executor executor, int parallelThreshold){
+        if(valueComparator == null)
+            throw new IllegalArgumentException("The parameter 'valueComparator' can not be null!");
+
+        return sortAndGroup(values, grouper, valueComparator, executor, parallelThreshold).toMap();
+    }
+
+    /**
+     * Like {@link #groupKeysByValue(List, Grouper, Comparator, GroupSorter)}, but sorts and groups large lists on the given executor
+     * using one chunk per available processor. The result is identical to the sequential one.
+     * @param executor The executor which sorts and groups the chunks, which should not be the one running the caller. The calling thread
+     * processes one chunk itself and then every chunk the executor has not started yet, so such an executor only loses the parallelism
+     * instead of deadlocking.
+     */
+    public static <K, V, KD> LinkedHashMap<KD, List<V>> groupKeysByValue(List<V> values, Grouper<K, V> valueGrouper, Comparator<V> valueComparator, GroupSorter<K, V, KD> groupSorter, Executor executor){
+        return groupKeysByValue(values, valueGrouper, valueComparator, groupSorter, executor, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param parallelThreshold Lists with less values are sorted and grouped sequentially on the calling thread.
+     * @see #groupKeysByValue(List, Grouper, Comparator, GroupSorter, Executor)
+     */
+    public static <K, V, KD> LinkedHashMap<KD, List<V>> groupKeysByValue(List<V> values, Grouper<K, V> valueGrouper, Comparator<V> valueComparator, GroupSorter<K, V, KD> groupSorter, Executor executor, int parallelThreshold){
+        if(groupSorter == null)
+            throw new IllegalArgumentException("The parameter 'groupSorter' can not be null!");
+
+        return sortAndGroup(values, groupSorter.getSortableGrouper(), valueComparator, executor, parallelThreshold).toSortedDisplayMap(groupSorter);
+    }
+
+    private static <K, V> Groups<K, V> sortAndGroup(List<V> values, Grouper<K, V> grouper, Comparator<V> valueComparator, Executor executor, int parallelThreshold) {
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(grouper == null)
+            throw new IllegalArgumentException("The parameter 'grouper' can not be null!");
+        if(executor == null)
+            throw new IllegalArgumentException("The parameter 'executor' can not be null!");
+
+        int chunkCount = Math.min(Runtime.getRuntime().availableProcessors(), values.size());
+        if(values.size() < parallelThreshold || chunkCount < 2)
+            return group(sortedCopy(values, valueComparator), grouper);
+
+        return ParallelGrouping.group(values, grouper, valueComparator, executor, chunkCount);
+    }
+
+    /**
+     * Groups the given values by several levels at once, e.g. country -> city -> store.
+     * Every level's group is a section keyed by its {@link SectionPath}, followed by the sections of the next level.
+     * Only the sections of the last level contain values, the others are plain headers. So the result can be displayed
+     * by the adapters directly, {@link SectionIndex#getSectionDepth(int)} tells the level of every section.
+     * @param values A list of values.
+     * @param valueComparator A comparator which determines how the values are going to be sorted (group internal) or null to keep their order.
+     * @param levels The levels from top to bottom.
+     * @return The correctly grouped and sorted data.
+     */
+    public static <V> LinkedHashMap<SectionPath, List<V>> groupKeysByLevels(List<V> values, Comparator<V> valueComparator, List<GroupLevel<V>> levels){
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(levels == null || levels.isEmpty())
+            throw new IllegalArgumentException("The parameter 'levels' can not be null or empty!");
+
+        return LevelGrouping.group(valueComparator == null ? values : sortedCopy(values, valueComparator), levels);
+    }
+
+    /**
+     * Groups the given values by their int keys without boxing a key per value.
+     * @param values A list of values.
+     * @param grouper An {@link IntGrouper} to determine by what property the values should be grouped.
+     * @return The correctly grouped data, which can be displayed via a {@link PrimitiveGroupedDataProvider}.
+     */
+    public static <V> PrimitiveGroupedData<Integer, V> groupIntKeysByValue(List<V> values, IntGrouper<V> grouper){
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(grouper == null)
+            throw new IllegalArgumentException("The parameter 'grouper' can not be null!");
+
+        PrimitiveGroupedData.Builder<V> builder = new PrimitiveGroupedData.Builder<>(PrimitiveGroupedData.KIND_INT, values);
+        for (V value : values)
+            builder.add(grouper.getGroupFrom(value));
+
+        return builder.build();
+    }
+
+    /**
+     * Groups the given values by their int keys without boxing a key per value and sorts the values using the given comparator.
+     * @param values A list of values.
+     * @param grouper An {@link IntGrouper} to determine by what property the values should be grouped.
+     * @param valueComparator A comparator which determines how the values are going to be sorted. (Sorting only appears group internal)
+     * @return The correctly grouped and sorted data, which can be displayed via a {@link PrimitiveGroupedDataProvider}.
+     */
+    public static <V> PrimitiveGroupedData<Integer, V> groupIntKeysByValue(List<V> values, IntGrouper<V> grouper, Comparator<V> valueComparator){
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(valueComparator == null)
+            throw new IllegalArgumentException("The parameter 'valueComparator' can not be null!");
+
+        return groupIntKeysByValue(sortedCopy(values, valueComparator), grouper);
+    }
+
+    /**
+     * Groups the given values by their long keys without boxing a key per value.
+     * @param values A list of values.
+     * @param grouper A {@link LongGrouper} to determine by what property the values should be grouped.
+     * @return The correctly grouped data, which can be displayed via a {@link PrimitiveGroupedDataProvider}.
+     */
+    public static <V> PrimitiveGroupedData<Long, V> groupLongKeysByValue(List<V> values, LongGrouper<V> grouper){
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(grouper == null)
+            throw new IllegalArgumentException("The parameter 'grouper' can not be null!");
+
+        PrimitiveGroupedData.Builder<V> builder = new PrimitiveGroupedData.Builder<>(PrimitiveGroupedData.KIND_LONG, values);
+        for (V value : values)
+            builder.add(grouper.getGroupFrom(value));
+
+        return builder.build();
+    }
+
+    /**
+     * Groups the given values by their long keys without boxing a key per value and sorts the values using the given comparator.
+     * @param values A list of values.
+     * @param grouper A {@link LongGrouper} to determine by what property the values should be grouped.
+     * @param valueComparator A comparator which determines how the values are going to be sorted. (Sorting only appears group internal)
+     * @return The correctly grouped and sorted data, which can be displayed via a {@link PrimitiveGroupedDataProvider}.
+     */
+    public static <V> PrimitiveGroupedData<Long, V> groupLongKeysByValue(List<V> values, LongGrouper<V> grouper, Comparator<V> valueComparator){
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(valueComparator == null)
+            throw new IllegalArgumentException("The parameter 'valueComparator' can not be null!");
 
-        return displayableMap;
+        return groupLongKeysByValue(sortedCopy(values, valueComparator), grouper);
     }
 
+    /**
+     * Groups the given values by their char keys without boxing a key per value.
+     * @param values A list of values.
+     * @param grouper A {@link CharGrouper} to determine by what property the values should be grouped.
+     * @return The correctly grouped data, which can be displayed via a {@link PrimitiveGroupedDataProvider}.
+     */
+    public static <V> PrimitiveGroupedData<Character, V> groupCharKeysByValue(List<V> values, CharGrouper<V> grouper){
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(grouper == null)
+            throw new IllegalArgumentException("The parameter 'grouper' can not be null!");
+
+        PrimitiveGroupedData.Builder<V> builder = new PrimitiveGroupedData.Builder<>(PrimitiveGroupedData.KIND_CHAR, values);
+        for (V value : values)
+            builder.add(grouper.getGroupFrom(value));
+
+        return builder.build();
+    }
+
+    /**
+     * Groups the given values by their char keys without boxing a key per value and sorts the values using the given comparator.
+     * @param values A list of values.
+     * @param grouper A {@link CharGrouper} to determine by what property the values should be grouped.
+     * @param valueComparator A comparator which determines how the values are going to be sorted. (Sorting only appears group internal)
+     * @return The correctly grouped and sorted data, which can be displayed via a {@link PrimitiveGroupedDataProvider}.
+     */
+    public static <V> PrimitiveGroupedData<Character, V> groupCharKeysByValue(List<V> values, CharGrouper<V> grouper, Comparator<V> valueComparator){
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(valueComparator == null)
+            throw new IllegalArgumentException("The parameter 'valueComparator' can not be null!");
+
+        return groupCharKeysByValue(sortedCopy(values, valueComparator), grouper);
+    }
 
     public static <K, V> LinkedHashMap<K, List<V>> sortGroupedDataByKeys(LinkedHashMap<K, List<V>> groupedData, Comparator<Map.Entry<K, List<V>>> groupComparator) {
         List<Map.Entry<K, List<V>>> entries = new ArrayList<>(groupedData.entrySet());
 
         Collections.sort(entries, groupComparator);
 
-        LinkedHashMap<K, List<V>> sortedMap = new LinkedHashMap<>();
+        LinkedHashMap<K, List<V>> sortedMap = new LinkedHashMap<>(capacityFor(entries.size()));
         for (Map.Entry<K, List<V>> entry : entries) {
             sortedMap.put(entry.getKey(), entry.getValue());
         }
 
         return sortedMap;
     }
+
+    /**
+     * @return A sorted copy of the given values. The sort is stable, so equal values keep their order.
+     */
+    @SuppressWarnings("unchecked")
+    static <V> List<V> sortedCopy(List<V> values, Comparator<V> valueComparator) {
+        V[] array = (V[]) values.toArray();
+        Arrays.sort(array, valueComparator);
+
+        return Arrays.asList(array);
+    }
+
+    /**
+     * Assigns every value the ordinal of its group (one hash lookup per value) and afterwards
+     * distributes the values into lists of the exact group size.
+     * The grouping tables are sized for up to {@link #MAX_EXPECTED_GROUPS} groups, but never for more groups than values.
+     */
+    static <K, V> Groups<K, V> group(List<V> values, Grouper<K, V> grouper) {
+        return group(values, grouper, Math.min(values.size(), MAX_EXPECTED_GROUPS));
+    }
+
+    /**
+     * @param expectedGroupCount The number of groups the tables are sized for, they only grow beyond it.
+     */
+    static <K, V> Groups<K, V> group(List<V> values, Grouper<K, V> grouper, int expectedGroupCount) {
+        int capacity = Math.max(Math.min(expectedGroupCount, values.size()), 1);
+        HashMap<K, Integer> ordinals = new HashMap<>(capacityFor(capacity));
+        ArrayList<K> keys = new ArrayList<>(capacity);
+        int[] counts = new int[capacity];
+        int[] ordinalOfValue = new int[values.size()];
+
+        int i = 0;
+        for (V value : values) {
+            K key = grouper.getGroupFrom(value);
+
+            Integer ordinal = ordinals.get(key);
+            if(ordinal == null) {
+                ordinal = keys.size();
+                ordinals.put(key, ordinal);
+                keys.add(key);
+
+                if(ordinal == counts.length)
+                    counts = Arrays.copyOf(counts, ordinal * 2);
+            }
+
+            ordinalOfValue[i++] = ordinal;
+            counts[ordinal]++;
+        }
+
+        Object[] lists = new Object[keys.size()];
+        for (int j = 0; j < lists.length; j++)
+            lists[j] = new ArrayList<V>(counts[j]);
+
+        Groups<K, V> groups = new Groups<>(keys, lists);
+        i = 0;
+        for (V value : values)
+            groups.valuesOf(ordinalOfValue[i++]).add(value);
+
+        return groups;
+    }
+
+    static int capacityFor(int size) {
+        return Math.max(size * 4 / 3 + 1, 16);
+    }
+
+    /**
+     * The groups in the order of their first value.
+     */
+    static final class Groups<K, V> {
+        final ArrayList<K> keys;
+        private final Object[] values;
+
+        /**
+         * @param values The list of values of every key.
+         */
+        Groups(ArrayList<K> keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<V> valuesOf(int ordinal) {
+            return (List<V>) values[ordinal];
+        }
+
+        LinkedHashMap<K, List<V>> toMap() {
+            LinkedHashMap<K, List<V>> groupedData = new LinkedHashMap<>(capacityFor(keys.size()));
+            for (int i = 0; i < keys.size(); i++)
+                groupedData.put(keys.get(i), valuesOf(i));
+
+            return groupedData;
+        }
+
+        /**
+         * Sorts the groups by the collation keys of their keys.
+         */
+        LinkedHashMap<K, List<V>> toCollatedMap(CollationKeyCache<K> groupKeys) {
+            int[] order = groupKeys.sortedOrder(keys);
+
+            LinkedHashMap<K, List<V>> groupedData = new LinkedHashMap<>(capacityFor(order.length));
+            for (int ordinal : order)
+                groupedData.put(keys.get(ordinal), valuesOf(ordinal));
+
+            return groupedData;
+        }
+
+        /**
+         * Sorts the groups using the groupSorter's comparator and replaces their keys with the displayable ones.
+         */
+        <KD> LinkedHashMap<KD, List<V>> toSortedDisplayMap(GroupSorter<K, V, KD> groupSorter) {
+            List<Map.Entry<K, List<V>>> entries = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++)
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(keys.get(i), valuesOf(i)));
+
+            Collections.sort(entries, groupSorter.getComparator());
+
+            LinkedHashMap<KD, List<V>> displayableMap = new LinkedHashMap<>(capacityFor(entries.size()));
+            for (Map.Entry<K, List<V>> entry : entries)
+                displayableMap.put(groupSorter.getKeyDisplayFromKey(entry.getKey()), entry.getValue());
+
+            return displayableMap;
+        }
+    }
 }
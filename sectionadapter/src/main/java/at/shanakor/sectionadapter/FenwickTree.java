@@ -0,0 +1,99 @@
+package at.shanakor.sectionadapter;
+
+import java.util.Arrays;
+
+/**
+ * A Fenwick tree (binary indexed tree) over non negative sizes.
+ * Updating a size, calculating a prefix sum and finding the element containing an offset take O(log n).
+ * Inserting or removing an element rebuilds the tree in O(n).
+ */
+class FenwickTree {
+    private int[] values;
+    private int[] tree;
+    private int size;
+
+    FenwickTree(int[] values, int size) {
+        this.values = Arrays.copyOf(values, Math.max(size, 1));
+        this.size = size;
+        build();
+    }
+
+    private void build() {
+        tree = new int[values.length + 1];
+        for (int i = 0; i < size; i++) {
+            int node = i + 1;
+            tree[node] += values[i];
+
+            int parent = node + (node & -node);
+            if(parent <= size)
+                tree[parent] += tree[node];
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    void set(int index, int value) {
+        add(index, value - values[index]);
+    }
+
+    void add(int index, int delta) {
+        values[index] += delta;
+        for (int node = index + 1; node <= size; node += node & -node)
+            tree[node] += delta;
+    }
+
+    /**
+     * @return The sum of the first {@code count} sizes.
+     */
+    int prefixSum(int count) {
+        int sum = 0;
+        for (int node = count; node > 0; node -= node & -node)
+            sum += tree[node];
+
+        return sum;
+    }
+
+    int total() {
+        return prefixSum(size);
+    }
+
+    /**
+     * @return The index of the element which contains the given offset, i.e. {@code prefixSum(i) <= offset < prefixSum(i + 1)}.
+     *         Elements with a size of 0 never contain an offset.
+     */
+    int indexOf(int offset) {
+        int index = 0;
+        for (int step = Integer.highestOneBit(Math.max(size, 1)); step > 0; step >>= 1) {
+            int next = index + step;
+            if(next <= size && tree[next] <= offset) {
+                index = next;
+                offset -= tree[next];
+            }
+        }
+
+        return index;
+    }
+
+    void insert(int index, int value) {
+        if(size == values.length)
+            values = Arrays.copyOf(values, values.length * 2);
+
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+        build();
+    }
+
+    void remove(int index) {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        values[size] = 0;
+        build();
+    }
+}
@@ -0,0 +1,292 @@
+package at.shanakor.sectionadapter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * A long-lived grouping of values which arrive one by one or in batches, e.g. from a sync stream.
+ * Every value is put into its group and binary-inserted behind all equal values using the valueComparator,
+ * new groups are binary-inserted using the comparator of the {@link GroupSorter}. So the data always equals the result of
+ * {@link CollectionHelper#groupKeysByValue(List, Grouper, Comparator, GroupSorter)} for all values in their order of arrival,
+ * as long as the group comparator only compares the (distinct) keys. Groups are never reordered.
+ * <p>
+ * The values can be added on any thread. The inserted sections and children are reported to a {@link Listener} in their order
+ * on the listenerExecutor, by default the main thread, so the listener can forward them to the modification methods of the adapters,
+ * e.g. {@code adapter.insertChild(section, positionInSection, value)}.
+ * <p>
+ * As a {@link GroupedDataProvider} it returns a copy of the data without the insertions which have not been reported yet,
+ * so the reported positions always apply to the data an adapter has loaded. All methods are synchronized.
+ */
+public class GroupIndex<K, V, KD> implements GroupedDataProvider<KD, V> {
+    /**
+     * Is notified about every insertion on the listenerExecutor.
+     */
+    public interface Listener<KD, V> {
+        /**
+         * A new section containing only the given value has been inserted.
+         */
+        void onSectionInserted(int section, KD key, V value);
+
+        /**
+         * The given value has been inserted into an existing section.
+         */
+        void onChildInserted(int section, int positionInSection, V value);
+    }
+
+    private final Comparator<V> valueComparator;
+    private final GroupSorter<K, V, KD> groupSorter;
+    private final Grouper<K, V> grouper;
+    private final Comparator<Map.Entry<K, List<V>>> groupComparator;
+
+    private final ArrayList<Group<K, V, KD>> groups = new ArrayList<>();
+    private final HashMap<K, Group<K, V, KD>> groupsByKey = new HashMap<>();
+    private int valueCount = 0;
+
+    private Listener<KD, V> listener = null;
+    private final Executor listenerExecutor;
+    /** The insertions which have not been reported to the listener yet in their order, {@link #getData()} leaves them out. */
+    private final ArrayDeque<Insertion<KD, V>> pendingInsertions = new ArrayDeque<>();
+
+    /**
+     * Reports the insertions on the main thread.
+     * @param valueComparator A comparator which determines how the values are going to be sorted. (Sorting only appears group internal)
+     * @param groupSorter An interface to determine how to group the values and how to sort the groups.
+     */
+    public GroupIndex(Comparator<V> valueComparator, GroupSorter<K, V, KD> groupSorter) {
+        this(valueComparator, groupSorter, new MainThreadExecutor());
+    }
+
+    /**
+     * @param listenerExecutor A serial executor which reports the insertions, usually the one of the thread the adapter runs on.
+     */
+    public GroupIndex(Comparator<V> valueComparator, GroupSorter<K, V, KD> groupSorter, Executor listenerExecutor) {
+        if(valueComparator == null)
+            throw new IllegalArgumentException("The parameter 'valueComparator' can not be null!");
+        if(groupSorter == null)
+            throw new IllegalArgumentException("The parameter 'groupSorter' can not be null!");
+        if(listenerExecutor == null)
+            throw new IllegalArgumentException("The parameter 'listenerExecutor' can not be null!");
+
+        this.listenerExecutor = listenerExecutor;
+        this.valueComparator = valueComparator;
+        this.groupSorter = groupSorter;
+        this.grouper = groupSorter.getSortableGrouper();
+        this.groupComparator = groupSorter.getComparator();
+    }
+
+    /**
+     * Inserts the value behind all equal values of its group.
+     */
+    public synchronized void add(V value) {
+        K key = grouper.getGroupFrom(value);
+        Group<K, V, KD> group = groupsByKey.get(key);
+
+        if(group == null) {
+            group = new Group<>(key, groupSorter.getKeyDisplayFromKey(key), value);
+            int section = upperBound(group);
+
+            groups.add(section, group);
+            groupsByKey.put(key, group);
+            valueCount++;
+
+            report(new Insertion<>(section, -1, group.displayKey, value));
+        }
+        else {
+            int positionInSection = upperBound(group.values, value);
+
+            group.values.add(positionInSection, value);
+            valueCount++;
+
+            report(new Insertion<>(indexOf(group), positionInSection, group.displayKey, value));
+        }
+    }
+
+    /**
+     * Inserts the values in their order, just like calling {@link #add} for each of them.
+     */
+    public synchronized void addAll(List<V> values) {
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+
+        for (V value : values)
+            add(value);
+    }
+
+    /**
+     * @return A copy of the current data without the insertions which have not been reported to the listener yet.
+     */
+    @Override
+    public synchronized LinkedHashMap<KD, List<V>> getData() {
+        ArrayList<KD> keys = new ArrayList<>(groups.size());
+        ArrayList<List<V>> values = new ArrayList<>(groups.size());
+        for (Group<K, V, KD> group : groups) {
+            keys.add(group.displayKey);
+            values.add(new ArrayList<>(group.values));
+        }
+
+        // Undoing the pending insertions from the latest on restores the data the listener has seen.
+        Iterator<Insertion<KD, V>> pending = pendingInsertions.descendingIterator();
+        while (pending.hasNext()) {
+            Insertion<KD, V> insertion = pending.next();
+            if(insertion.positionInSection < 0) {
+                keys.remove(insertion.section);
+                values.remove(insertion.section);
+            }
+            else
+                values.get(insertion.section).remove(insertion.positionInSection);
+        }
+
+        LinkedHashMap<KD, List<V>> groupedData = new LinkedHashMap<>(CollectionHelper.capacityFor(keys.size()));
+        for (int section = 0; section < keys.size(); section++)
+            groupedData.put(keys.get(section), values.get(section));
+
+        return groupedData;
+    }
+
+    public synchronized int getSectionCount() {
+        return groups.size();
+    }
+
+    public synchronized int getValueCount() {
+        return valueCount;
+    }
+
+    public synchronized void setListener(Listener<KD, V> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Reports the insertion on the listenerExecutor, the data of {@link #getData()} includes it once it has been reported.
+     */
+    private void report(final Insertion<KD, V> insertion) {
+        if(listener == null)
+            return;
+
+        final Listener<KD, V> listener = this.listener;
+        pendingInsertions.add(insertion);
+        listenerExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (GroupIndex.this) {
+                    pendingInsertions.remove(insertion);
+                }
+
+                if(insertion.positionInSection < 0)
+                    listener.onSectionInserted(insertion.section, insertion.key, insertion.value);
+                else
+                    listener.onChildInserted(insertion.section, insertion.positionInSection, insertion.value);
+            }
+        });
+    }
+
+    /**
+     * @return The position behind the last group which is not sorted after the given one.
+     */
+    private int upperBound(Group<K, V, KD> group) {
+        int low = 0;
+        int high = groups.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if(groupComparator.compare(groups.get(mid), group) <= 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return low;
+    }
+
+    /**
+     * @return The position behind the last value which is not sorted after the given one.
+     */
+    private int upperBound(List<V> values, V value) {
+        int low = 0;
+        int high = values.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if(valueComparator.compare(values.get(mid), value) <= 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return low;
+    }
+
+    /**
+     * Finds the group by binary search, groups which compare as equal are searched linearly.
+     */
+    private int indexOf(Group<K, V, KD> group) {
+        int low = 0;
+        int high = groups.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if(groupComparator.compare(groups.get(mid), group) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        while (groups.get(low) != group)
+            low++;
+
+        return low;
+    }
+
+    /**
+     * A section or child insertion, whose positions refer to the data right after it.
+     */
+    private static final class Insertion<KD, V> {
+        final int section;
+        /** The position of the child or -1 if the section has been inserted. */
+        final int positionInSection;
+        final KD key;
+        final V value;
+
+        Insertion(int section, int positionInSection, KD key, V value) {
+            this.section = section;
+            this.positionInSection = positionInSection;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A group as it is passed to the comparator of the {@link GroupSorter}.
+     */
+    private static final class Group<K, V, KD> implements Map.Entry<K, List<V>> {
+        private final K key;
+        private final KD displayKey;
+        private final ArrayList<V> values = new ArrayList<>();
+        private final List<V> unmodifiableValues = Collections.unmodifiableList(values);
+
+        Group(K key, KD displayKey, V value) {
+            this.key = key;
+            this.displayKey = displayKey;
+            this.values.add(value);
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public List<V> getValue() {
+            return unmodifiableValues;
+        }
+
+        @Override
+        public List<V> setValue(List<V> value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package at.shanakor.sectionadapter;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single level of hierarchically grouped data, see {@link CollectionHelper#groupKeysByLevels}.
+ */
+public final class GroupLevel<V> {
+    final Grouper<Object, V> grouper;
+    /** Sorts the groups of this level or null to keep the order of their first values. */
+    final Comparator<Map.Entry<Object, List<V>>> comparator;
+    final GroupSorter<Object, V, Object> groupSorter;
+
+    private GroupLevel(Grouper<Object, V> grouper, GroupSorter<Object, V, Object> groupSorter) {
+        this.grouper = grouper;
+        this.groupSorter = groupSorter;
+        this.comparator = groupSorter == null ? null : groupSorter.getComparator();
+    }
+
+    /**
+     * @return A level whose groups keep the order of their first values.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> GroupLevel<V> of(Grouper<K, V> grouper) {
+        if(grouper == null)
+            throw new IllegalArgumentException("The parameter 'grouper' can not be null!");
+
+        return new GroupLevel<>((Grouper<Object, V>) grouper, null);
+    }
+
+    /**
+     * @return A level whose groups are sorted and displayed using the given {@link GroupSorter}.
+     *         The comparator receives the values of all sections below a group.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V, KD> GroupLevel<V> of(GroupSorter<K, V, KD> groupSorter) {
+        if(groupSorter == null)
+            throw new IllegalArgumentException("The parameter 'groupSorter' can not be null!");
+
+        return new GroupLevel<>((Grouper<Object, V>) groupSorter.getSortableGrouper(), (GroupSorter<Object, V, Object>) groupSorter);
+    }
+
+    Object getDisplayKey(Object key) {
+        return groupSorter == null ? key : groupSorter.getKeyDisplayFromKey(key);
+    }
+}
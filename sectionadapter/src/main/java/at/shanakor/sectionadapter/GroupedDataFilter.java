@@ -0,0 +1,162 @@
+package at.shanakor.sectionadapter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filters already grouped data by a query, e.g. for a search box, without sorting or grouping it again.
+ * Sections and children keep their order, sections without a matching child are dropped.
+ * <p>
+ * The data of the source provider is loaded once and kept as a snapshot until {@link #invalidateSource()} is called.
+ * If the new query narrows the previous one (see {@link #narrows}), only the previous result is filtered again.
+ * Sections whose children all match keep their list instance, so a {@link SectionDiffCallback} skips them.
+ * <p>
+ * Pass the filter as the provider of an adapter with a load executor, then every {@code setQuery} followed by
+ * {@code notifyDatasetChanged} filters in the background and cancels the filtering of earlier queries.
+ */
+public class GroupedDataFilter<K, V> implements CancellableGroupedDataProvider<K, V> {
+    /**
+     * Decides whether a value matches the query.
+     */
+    public interface Matcher<V> {
+        /**
+         * Is called on the load thread.
+         * @param query The current query, never null or empty.
+         */
+        boolean matches(V value, String query);
+    }
+
+    /** The number of values which are filtered between two checks of the cancellation token. */
+    private static final int CANCELLATION_CHECK_INTERVAL = 256;
+
+    private final GroupedDataProvider<K, V> source;
+    private final Matcher<V> matcher;
+    private volatile String query = "";
+
+    private LinkedHashMap<K, List<V>> snapshot = null;
+    private String lastQuery = null;
+    private LinkedHashMap<K, List<V>> lastResult = null;
+
+    /**
+     * @param source Provides the grouped data which is filtered.
+     * @param matcher Decides which children match the query.
+     */
+    public GroupedDataFilter(GroupedDataProvider<K, V> source, Matcher<V> matcher) {
+        if(source == null)
+            throw new IllegalArgumentException("The parameter 'source' can not be null!");
+        if(matcher == null)
+            throw new IllegalArgumentException("The parameter 'matcher' can not be null!");
+
+        this.source = source;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Sets the query which is applied by the next load. An empty query or null matches everything.
+     */
+    public void setQuery(String query) {
+        this.query = query == null ? "" : query;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Drops the snapshot and the previous result, so the next load reads the source again.
+     */
+    public synchronized void invalidateSource() {
+        snapshot = null;
+        lastQuery = null;
+        lastResult = null;
+    }
+
+    @Override
+    public LinkedHashMap<K, List<V>> getData() {
+        return getData(new CancellationToken());
+    }
+
+    @Override
+    public LinkedHashMap<K, List<V>> getData(CancellationToken token) {
+        String query = this.query;
+
+        LinkedHashMap<K, List<V>> base;
+        synchronized (this) {
+            if(snapshot == null) {
+                LinkedHashMap<K, List<V>> data = source instanceof CancellableGroupedDataProvider
+                        ? ((CancellableGroupedDataProvider<K, V>) source).getData(token)
+                        : source.getData();
+                if(data == null || token.isCancelled())
+                    return null;
+
+                snapshot = data;
+            }
+
+            if(query.isEmpty())
+                return snapshot;
+
+            base = lastResult != null && narrows(lastQuery, query) ? lastResult : snapshot;
+        }
+
+        LinkedHashMap<K, List<V>> result = filter(base, query, token);
+        if(result == null)
+            return null;
+
+        synchronized (this) {
+            // Only keep the result if the snapshot has not been dropped in the meantime.
+            if(base == snapshot || base == lastResult) {
+                lastQuery = query;
+                lastResult = result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Whether every value which matches the new query also matches the previous one. By default this is the case
+     *         if the new query starts with the previous one, override it if the {@link Matcher} behaves differently.
+     */
+    protected boolean narrows(String previousQuery, String query) {
+        return query.startsWith(previousQuery);
+    }
+
+    /**
+     * @return The matching children of all sections or null if the token has been cancelled.
+     */
+    private LinkedHashMap<K, List<V>> filter(LinkedHashMap<K, List<V>> groupedData, String query, CancellationToken token) {
+        LinkedHashMap<K, List<V>> result = new LinkedHashMap<>(CollectionHelper.capacityFor(groupedData.size()));
+        int checked = 0;
+
+        for (Map.Entry<K, List<V>> entry : groupedData.entrySet()) {
+            List<V> values = entry.getValue();
+            List<V> matches = null;
+
+            for (int i = 0; i < values.size(); i++) {
+                if(++checked % CANCELLATION_CHECK_INTERVAL == 0 && token.isCancelled())
+                    return null;
+
+                V value = values.get(i);
+                if(matcher.matches(value, query)) {
+                    if(matches != null)
+                        matches.add(value);
+                }
+                else if(matches == null) {
+                    // The first mismatch, so the section gets its own list.
+                    matches = new ArrayList<>(values.subList(0, i));
+                }
+            }
+
+            if(matches == null) {
+                if(!values.isEmpty())
+                    result.put(entry.getKey(), values);
+            }
+            else if(!matches.isEmpty())
+                result.put(entry.getKey(), matches);
+        }
+
+        return token.isCancelled() ? null : result;
+    }
+}
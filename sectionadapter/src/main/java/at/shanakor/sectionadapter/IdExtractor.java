@@ -0,0 +1,12 @@
+package at.shanakor.sectionadapter;
+
+/**
+ * An interface that determines the stable id of a section key or a value.
+ * The ids of all keys and values have to be unique and must not change across refreshes.
+ */
+public interface IdExtractor<T> {
+    /**
+     * @return The id of the given item.
+     */
+    long getId(T item);
+}
@@ -0,0 +1,12 @@
+package at.shanakor.sectionadapter;
+
+/**
+ * Like a {@link Grouper}, but for int keys (bucket ids, e.g. day numbers), which does not box a key per value.
+ * @see CollectionHelper#groupIntKeysByValue(java.util.List, IntGrouper)
+ */
+public interface IntGrouper<V> {
+    /**
+     * @return The key which you want your values to be grouped by.
+     */
+    int getGroupFrom(V value);
+}
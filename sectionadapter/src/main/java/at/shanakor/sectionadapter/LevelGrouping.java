@@ -0,0 +1,134 @@
+package at.shanakor.sectionadapter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups values by several levels at once. Every value walks down a tree of groups (one hash lookup per level),
+ * afterwards the groups of every level are sorted and the tree is written out depth-first.
+ */
+final class LevelGrouping {
+    private LevelGrouping() {
+    }
+
+    static <V> LinkedHashMap<SectionPath, List<V>> group(List<V> values, List<GroupLevel<V>> levels) {
+        Node<V> root = new Node<>(null);
+        for (V value : values) {
+            Node<V> node = root;
+            for (GroupLevel<V> level : levels)
+                node = node.child(level.grouper.getGroupFrom(value));
+
+            node.values.add(value);
+        }
+
+        LinkedHashMap<SectionPath, List<V>> groupedData = new LinkedHashMap<>();
+        write(root, levels, new Object[0], groupedData);
+        return groupedData;
+    }
+
+    private static <V> void write(Node<V> node, List<GroupLevel<V>> levels, Object[] path, LinkedHashMap<SectionPath, List<V>> groupedData) {
+        GroupLevel<V> level = levels.get(path.length);
+        if(level.comparator != null)
+            Collections.sort(node.children, level.comparator);
+
+        boolean leaf = path.length == levels.size() - 1;
+        for (Node<V> child : node.children) {
+            Object[] childPath = new Object[path.length + 1];
+            System.arraycopy(path, 0, childPath, 0, path.length);
+            childPath[path.length] = level.getDisplayKey(child.key);
+
+            if(leaf)
+                groupedData.put(new SectionPath(childPath), child.values);
+            else {
+                groupedData.put(new SectionPath(childPath), Collections.<V>emptyList());
+                write(child, levels, childPath, groupedData);
+            }
+        }
+    }
+
+    /**
+     * A group of any level. As an entry it provides the values of all sections below it to the {@link GroupSorter}s.
+     */
+    private static final class Node<V> implements Map.Entry<Object, List<V>> {
+        final Object key;
+        final ArrayList<V> values = new ArrayList<>();
+        final ArrayList<Node<V>> children = new ArrayList<>();
+        private HashMap<Object, Node<V>> childrenByKey = null;
+
+        Node(Object key) {
+            this.key = key;
+        }
+
+        Node<V> child(Object key) {
+            if(childrenByKey == null)
+                childrenByKey = new HashMap<>();
+
+            Node<V> child = childrenByKey.get(key);
+            if(child == null) {
+                child = new Node<>(key);
+                childrenByKey.put(key, child);
+                children.add(child);
+            }
+
+            return child;
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        /**
+         * @return The values of this group, respectively of all groups below it, without copying them.
+         */
+        @Override
+        public List<V> getValue() {
+            if(children.isEmpty())
+                return Collections.unmodifiableList(values);
+
+            final List<List<V>> lists = new ArrayList<>();
+            collect(this, lists);
+
+            int size = 0;
+            for (List<V> list : lists)
+                size += list.size();
+
+            final int totalSize = size;
+            return new AbstractList<V>() {
+                @Override
+                public V get(int location) {
+                    for (List<V> list : lists) {
+                        if(location < list.size())
+                            return list.get(location);
+                        location -= list.size();
+                    }
+
+                    throw new IndexOutOfBoundsException();
+                }
+
+                @Override
+                public int size() {
+                    return totalSize;
+                }
+            };
+        }
+
+        private static <V> void collect(Node<V> node, List<List<V>> lists) {
+            if(node.children.isEmpty())
+                lists.add(node.values);
+
+            for (Node<V> child : node.children)
+                collect(child, lists);
+        }
+
+        @Override
+        public List<V> setValue(List<V> value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
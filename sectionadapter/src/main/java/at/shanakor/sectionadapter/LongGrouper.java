@@ -0,0 +1,12 @@
+package at.shanakor.sectionadapter;
+
+/**
+ * Like a {@link Grouper}, but for long keys (large bucket ids, e.g. timestamps divided by a bucket size), which does not box a key per value.
+ * @see CollectionHelper#groupLongKeysByValue(java.util.List, LongGrouper)
+ */
+public interface LongGrouper<V> {
+    /**
+     * @return The key which you want your values to be grouped by.
+     */
+    long getGroupFrom(V value);
+}
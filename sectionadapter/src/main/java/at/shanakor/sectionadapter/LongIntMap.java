@@ -0,0 +1,76 @@
+package at.shanakor.sectionadapter;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from long to non negative int with linear probing, which does not box its entries.
+ */
+class LongIntMap {
+    private long[] keys;
+    /** The value + 1 of every slot, 0 marks an empty slot. */
+    private int[] values;
+    private int size = 0;
+
+    LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2, 4) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * @return The value of the given key or -1 if the map does not contain it.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; values[slot] != 0; slot = (slot + 1) & mask) {
+            if(keys[slot] == key)
+                return values[slot] - 1;
+        }
+
+        return -1;
+    }
+
+    void put(long key, int value) {
+        if(value < 0)
+            throw new IllegalArgumentException("The parameter 'value' can not be negative!");
+        if((size + 1) * 2 > keys.length)
+            resize(keys.length * 2);
+
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != 0 && keys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        if(values[slot] == 0)
+            size++;
+        keys[slot] = key;
+        values[slot] = value + 1;
+    }
+
+    void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if(oldValues[i] != 0)
+                put(oldKeys[i], oldValues[i] - 1);
+        }
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,18 @@
+package at.shanakor.sectionadapter;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Posts the given runnables to the main thread.
+ */
+class MainThreadExecutor implements Executor {
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void execute(Runnable runnable) {
+        handler.post(runnable);
+    }
+}
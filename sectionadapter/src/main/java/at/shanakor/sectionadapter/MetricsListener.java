@@ -0,0 +1,41 @@
+package at.shanakor.sectionadapter;
+
+/**
+ * Receives timings and counts of the adapters, e.g. to find out whether jank comes from the {@link GroupedDataProvider},
+ * from flattening the data or from binding views. If no listener is set, the adapters do not measure anything.
+ * <p>
+ * {@link #onDataLoaded} and {@link #onIndexBuilt} are called on the load executor if the adapter loads in the background,
+ * {@link #onViewInflated} on the warm-up executor for warmed up views, all other methods on the main thread. See {@link MetricsRecorder} for a lock-free default implementation.
+ */
+public interface MetricsListener {
+    int INDEXER_GET_SECTIONS = 0;
+    int INDEXER_GET_POSITION_FOR_SECTION = 1;
+    int INDEXER_GET_SECTION_FOR_POSITION = 2;
+
+    /**
+     * @param nanos The time {@link GroupedDataProvider#getData()} took.
+     */
+    void onDataLoaded(long nanos);
+
+    /**
+     * @param nanos The time flattening the data into a {@link SectionIndex} took.
+     * @param rowCount The number of rows of the new index.
+     */
+    void onIndexBuilt(long nanos, int rowCount);
+
+    /**
+     * A view of the given type has been inflated by {@code inflateViewFor} respectively a ViewHolder by {@code inflateViewHolderFor}.
+     * Views which are warmed up are counted on the warm-up executor.
+     */
+    void onViewInflated(int viewType);
+
+    /**
+     * @param nanos The time binding a view of the given type took.
+     */
+    void onViewBound(int viewType, long nanos);
+
+    /**
+     * @param method One of the {@code INDEXER_} constants.
+     */
+    void onSectionIndexerCalled(int method);
+}
@@ -0,0 +1,118 @@
+package at.shanakor.sectionadapter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link MetricsListener} which records everything in fixed-size, lock-free counters, so it can be read from any thread
+ * (e.g. to ship the numbers with the app's telemetry).
+ * Bind latencies are recorded in histograms per view type, bucket {@code i} counts binds which took less than
+ * {@code 2^i} microseconds, the last bucket counts all slower binds.
+ */
+public class MetricsRecorder implements MetricsListener {
+    public static final int BUCKET_COUNT = 21;
+    /** View types are stored in a byte, so there are at most 128 of them. */
+    private static final int VIEW_TYPE_COUNT = Byte.MAX_VALUE + 1;
+
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private final AtomicLong buildCount = new AtomicLong();
+    private final AtomicLong buildNanos = new AtomicLong();
+    private volatile int lastRowCount = 0;
+
+    private final AtomicLongArray inflateCounts = new AtomicLongArray(VIEW_TYPE_COUNT);
+    private final AtomicLongArray bindHistograms = new AtomicLongArray(VIEW_TYPE_COUNT * BUCKET_COUNT);
+    private final AtomicLongArray bindNanos = new AtomicLongArray(VIEW_TYPE_COUNT);
+    private final AtomicLongArray indexerCalls = new AtomicLongArray(3);
+
+    @Override
+    public void onDataLoaded(long nanos) {
+        loadCount.incrementAndGet();
+        loadNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void onIndexBuilt(long nanos, int rowCount) {
+        buildCount.incrementAndGet();
+        buildNanos.addAndGet(nanos);
+        lastRowCount = rowCount;
+    }
+
+    @Override
+    public void onViewInflated(int viewType) {
+        inflateCounts.incrementAndGet(viewType);
+    }
+
+    @Override
+    public void onViewBound(int viewType, long nanos) {
+        bindHistograms.incrementAndGet(viewType * BUCKET_COUNT + bucketOf(nanos));
+        bindNanos.addAndGet(viewType, nanos);
+    }
+
+    @Override
+    public void onSectionIndexerCalled(int method) {
+        indexerCalls.incrementAndGet(method);
+    }
+
+    private static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    //region Getter
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    public long getLoadNanos() {
+        return loadNanos.get();
+    }
+
+    public long getIndexBuildCount() {
+        return buildCount.get();
+    }
+
+    public long getIndexBuildNanos() {
+        return buildNanos.get();
+    }
+
+    /**
+     * @return The number of rows of the most recently built index.
+     */
+    public int getLastRowCount() {
+        return lastRowCount;
+    }
+
+    public long getInflateCount(int viewType) {
+        return inflateCounts.get(viewType);
+    }
+
+    /**
+     * @return The number of binds of the given view type which fell into the given bucket.
+     */
+    public long getBindCount(int viewType, int bucket) {
+        return bindHistograms.get(viewType * BUCKET_COUNT + bucket);
+    }
+
+    /**
+     * @return The total time all binds of the given view type took.
+     */
+    public long getBindNanos(int viewType) {
+        return bindNanos.get(viewType);
+    }
+
+    /**
+     * @return The exclusive upper bound of the given bucket in microseconds or {@link Long#MAX_VALUE} for the last bucket.
+     */
+    public static long getBucketUpperBoundMicros(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * @param method One of the {@code INDEXER_} constants of {@link MetricsListener}.
+     */
+    public long getSectionIndexerCallCount(int method) {
+        return indexerCalls.get(method);
+    }
+    //endregion
+}
@@ -0,0 +1,224 @@
+package at.shanakor.sectionadapter;
+
+import java.util.AbstractList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link GroupedDataProvider} for sections with a huge amount of children. Only the section keys and sizes are loaded up front,
+ * so building the {@link SectionIndex} (and thus {@code getItemCount} and the section indexer) does not load any child.
+ * <p>
+ * The value lists of the returned data are windows onto a page cache: {@code get} returns the child if its page has been loaded,
+ * otherwise it returns null and loads the page on the loadExecutor. Once a page has been loaded, the {@link OnPageLoadedListener}
+ * is called on the main thread, e.g. to rebind the affected rows via {@code notifyGlobalChildRangeChanged}.
+ * Pages ahead in the scroll direction are prefetched, and the least recently used pages are evicted once the cached children
+ * exceed the memory budget, which is measured using {@link #sizeOf}.
+ * If loading a page fails, the exception is rethrown on the loadExecutor and the page is requested again by the next {@code get}.
+ * <p>
+ * As the lists load lazily, they should not be modified or diffed, since both would touch every child.
+ */
+public class PagedGroupedDataProvider<K, V> implements GroupedDataProvider<K, V> {
+    /**
+     * Is called on the main thread whenever a page has been loaded.
+     */
+    public interface OnPageLoadedListener {
+        void onPageLoaded(int globalChildPosition, int count);
+    }
+
+    private final PagedGroupedDataSource<K, V> dataSource;
+    private final int pageSize;
+    private final int memoryBudget;
+    private final int prefetchDistance;
+    private final Executor loadExecutor;
+    private final Executor mainExecutor;
+
+    private volatile Window currentWindow = null;
+    private OnPageLoadedListener onPageLoadedListener = null;
+
+    /**
+     * @param dataSource The source to load the sections and pages from.
+     * @param pageSize The number of children per page.
+     * @param memoryBudget The maximum size of all cached children, measured in {@link #sizeOf} units (by default the number of children).
+     * @param prefetchDistance The number of pages which are loaded ahead in the scroll direction.
+     * @param loadExecutor The executor which loads the pages.
+     */
+    public PagedGroupedDataProvider(PagedGroupedDataSource<K, V> dataSource, int pageSize, int memoryBudget, int prefetchDistance, Executor loadExecutor) {
+        this(dataSource, pageSize, memoryBudget, prefetchDistance, loadExecutor, new MainThreadExecutor());
+    }
+
+    /**
+     * @param mainExecutor The executor which receives the loaded pages. The page cache is only accessed from this executor.
+     */
+    public PagedGroupedDataProvider(PagedGroupedDataSource<K, V> dataSource, int pageSize, int memoryBudget, int prefetchDistance, Executor loadExecutor, Executor mainExecutor) {
+        if(dataSource == null)
+            throw new IllegalArgumentException("The parameter 'dataSource' can not be null!");
+        if(pageSize <= 0)
+            throw new IllegalArgumentException("The parameter 'pageSize' has to be positive!");
+        if(memoryBudget <= 0)
+            throw new IllegalArgumentException("The parameter 'memoryBudget' has to be positive!");
+        if(prefetchDistance < 0)
+            throw new IllegalArgumentException("The parameter 'prefetchDistance' can not be negative!");
+        if(loadExecutor == null)
+            throw new IllegalArgumentException("The parameter 'loadExecutor' can not be null!");
+        if(mainExecutor == null)
+            throw new IllegalArgumentException("The parameter 'mainExecutor' can not be null!");
+
+        this.dataSource = dataSource;
+        this.pageSize = pageSize;
+        this.memoryBudget = memoryBudget;
+        this.prefetchDistance = prefetchDistance;
+        this.loadExecutor = loadExecutor;
+        this.mainExecutor = mainExecutor;
+    }
+
+    /**
+     * Loads the section sizes and starts with an empty page cache. Pages of the previous data are discarded.
+     */
+    @Override
+    public LinkedHashMap<K, List<V>> getData() {
+        LinkedHashMap<K, Integer> sectionSizes = dataSource.getSectionSizes();
+
+        int childCount = 0;
+        for (Integer size : sectionSizes.values())
+            childCount += size;
+
+        Window window = new Window(childCount);
+        LinkedHashMap<K, List<V>> groupedData = new LinkedHashMap<>(sectionSizes.size() * 4 / 3 + 1);
+        int globalChildPosition = 0;
+        for (Map.Entry<K, Integer> entry : sectionSizes.entrySet()) {
+            groupedData.put(entry.getKey(), new PagedList(window, globalChildPosition, entry.getValue()));
+            globalChildPosition += entry.getValue();
+        }
+
+        currentWindow = window;
+        return groupedData;
+    }
+
+    /**
+     * @return The size of a single child which is counted against the memory budget. Defaults to 1.
+     */
+    protected int sizeOf(V value) {
+        return 1;
+    }
+
+    public void setOnPageLoadedListener(OnPageLoadedListener onPageLoadedListener) {
+        this.onPageLoadedListener = onPageLoadedListener;
+    }
+
+    /**
+     * The page cache of a single data load.
+     */
+    private class Window {
+        private final int childCount;
+        /** The cached pages in access order. */
+        private final LinkedHashMap<Integer, List<V>> pages = new LinkedHashMap<>(16, 0.75f, true);
+        private final Set<Integer> loadingPages = new HashSet<>();
+        private int cachedSize = 0;
+        private int lastGlobalChildPosition = 0;
+
+        Window(int childCount) {
+            this.childCount = childCount;
+        }
+
+        V get(int globalChildPosition) {
+            int page = globalChildPosition / pageSize;
+            int direction = globalChildPosition >= lastGlobalChildPosition ? 1 : -1;
+            lastGlobalChildPosition = globalChildPosition;
+
+            List<V> values = pages.get(page);
+            for (int i = values == null ? 0 : 1; i <= prefetchDistance; i++)
+                request(page + i * direction);
+
+            return values == null ? null : values.get(globalChildPosition - page * pageSize);
+        }
+
+        private void request(final int page) {
+            final int start = page * pageSize;
+            if(page < 0 || start >= childCount || pages.containsKey(page) || !loadingPages.add(page))
+                return;
+
+            final int count = Math.min(pageSize, childCount - start);
+            loadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    List<V> values = null;
+                    try {
+                        values = dataSource.loadPage(start, count);
+                    }
+                    finally {
+                        // A failed page is no longer loading, so the next get requests it again.
+                        final List<V> loadedValues = values;
+                        mainExecutor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                loadingPages.remove(page);
+                                if(loadedValues == null || currentWindow != Window.this)
+                                    return;
+
+                                put(page, loadedValues);
+                                if(onPageLoadedListener != null)
+                                    onPageLoadedListener.onPageLoaded(start, count);
+                            }
+                        });
+                    }
+                }
+            });
+        }
+
+        private void put(int page, List<V> values) {
+            pages.put(page, values);
+            cachedSize += sizeOf(values);
+
+            Iterator<Map.Entry<Integer, List<V>>> iterator = pages.entrySet().iterator();
+            while (cachedSize > memoryBudget && pages.size() > 1) {
+                Map.Entry<Integer, List<V>> eldest = iterator.next();
+                cachedSize -= sizeOf(eldest.getValue());
+                iterator.remove();
+            }
+        }
+
+        private int sizeOf(List<V> values) {
+            int size = 0;
+            for (V value : values)
+                size += PagedGroupedDataProvider.this.sizeOf(value);
+
+            return size;
+        }
+    }
+
+    /**
+     * The children of a single section, backed by the page cache.
+     */
+    private class PagedList extends AbstractList<V> implements SectionIndex.LazyValues {
+        private final Window window;
+        private final int globalChildPosition;
+        private final int size;
+
+        PagedList(Window window, int globalChildPosition, int size) {
+            this.window = window;
+            this.globalChildPosition = globalChildPosition;
+            this.size = size;
+        }
+
+        /**
+         * @return The child or null if its page is still loading.
+         */
+        @Override
+        public V get(int location) {
+            if(location < 0 || location >= size)
+                throw new IndexOutOfBoundsException("Position " + location + " of " + size);
+
+            return window.get(globalChildPosition + location);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
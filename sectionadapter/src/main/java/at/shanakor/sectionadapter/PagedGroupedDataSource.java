@@ -0,0 +1,24 @@
+package at.shanakor.sectionadapter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A data source which is able to load the children of all sections page by page,
+ * e.g. a database which can count the children per key ({@code GROUP BY}) and load them with {@code LIMIT}/{@code OFFSET}.
+ * Both methods are called on a background thread.
+ */
+public interface PagedGroupedDataSource<K, V> {
+    /**
+     * @return The key and the number of children of every section, in the order the sections are going to be displayed.
+     */
+    LinkedHashMap<K, Integer> getSectionSizes();
+
+    /**
+     * Loads children in their global order, i.e. the children of the first section followed by the children of the second one and so on.
+     * @param globalChildPosition The global position of the first child to load.
+     * @param count The number of children to load.
+     * @return Exactly {@code count} children.
+     */
+    List<V> loadPage(int globalChildPosition, int count);
+}
@@ -0,0 +1,224 @@
+package at.shanakor.sectionadapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sorts and groups values on several threads with exactly the same result as sorting the whole list stably and grouping it afterwards.
+ * <p>
+ * The values are split into one chunk per thread, every chunk is sorted stably and grouped on its own. Afterwards the chunk lists
+ * of every group are merged, preferring the lower chunk on ties, and the groups are ordered by their smallest value
+ * (respectively by the chunk and position of its first occurrence on ties), which is where the group first appears in the sorted list.
+ */
+final class ParallelGrouping {
+    private ParallelGrouping() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> CollectionHelper.Groups<K, V> group(List<V> values, final Grouper<K, V> grouper, Comparator<V> valueComparator, Executor executor, int chunkCount) {
+        final Comparator<Object> comparator = valueComparator == null ? NATURAL_ORDER : (Comparator<Object>) valueComparator;
+        final Object[] array = values.toArray();
+        final int[] chunkStarts = new int[chunkCount + 1];
+        for (int i = 0; i <= chunkCount; i++)
+            chunkStarts[i] = (int) ((long) array.length * i / chunkCount);
+
+        //region Sort and group every chunk
+        final List<CollectionHelper.Groups<K, V>> chunkGroups = new ArrayList<>(chunkCount);
+        Runnable[] chunkTasks = new Runnable[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunkGroups.add(null);
+
+            final int chunk = i;
+            chunkTasks[i] = new Runnable() {
+                @Override
+                public void run() {
+                    Arrays.sort(array, chunkStarts[chunk], chunkStarts[chunk + 1], comparator);
+
+                    List<V> chunkValues = (List<V>) Arrays.asList(array).subList(chunkStarts[chunk], chunkStarts[chunk + 1]);
+                    chunkGroups.set(chunk, CollectionHelper.group(chunkValues, grouper));
+                }
+            };
+        }
+        runAll(executor, chunkTasks);
+        //endregion
+
+        //region Collect the chunk lists of every group and find the group's first value
+        HashMap<K, Integer> ordinals = new HashMap<>();
+        final ArrayList<K> keys = new ArrayList<>();
+        final ArrayList<List<List<V>>> chunkLists = new ArrayList<>();
+        final ArrayList<Object> heads = new ArrayList<>();
+        final ArrayList<int[]> headPositions = new ArrayList<>();
+
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            CollectionHelper.Groups<K, V> groups = chunkGroups.get(chunk);
+
+            for (int i = 0; i < groups.keys.size(); i++) {
+                K key = groups.keys.get(i);
+                List<V> list = groups.valuesOf(i);
+
+                Integer ordinal = ordinals.get(key);
+                if(ordinal == null) {
+                    ordinals.put(key, keys.size());
+                    keys.add(key);
+                    chunkLists.add(new ArrayList<List<V>>(chunkCount));
+                    heads.add(list.get(0));
+                    headPositions.add(new int[]{chunk, i});
+                }
+                else if(comparator.compare(list.get(0), heads.get(ordinal)) < 0) {
+                    heads.set(ordinal, list.get(0));
+                    headPositions.set(ordinal, new int[]{chunk, i});
+                }
+
+                chunkLists.get(ordinal == null ? keys.size() - 1 : ordinal).add(list);
+            }
+        }
+
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                int result = comparator.compare(heads.get(lhs), heads.get(rhs));
+                if(result != 0)
+                    return result;
+
+                int[] lhsPosition = headPositions.get(lhs);
+                int[] rhsPosition = headPositions.get(rhs);
+                if(lhsPosition[0] != rhsPosition[0])
+                    return lhsPosition[0] < rhsPosition[0] ? -1 : 1;
+
+                return lhsPosition[1] < rhsPosition[1] ? -1 : (lhsPosition[1] == rhsPosition[1] ? 0 : 1);
+            }
+        });
+        //endregion
+
+        //region Merge the chunk lists of every group
+        final Object[] mergedLists = new Object[order.length];
+        Runnable[] mergeTasks = new Runnable[Math.min(chunkCount, Math.max(order.length, 1))];
+        for (int i = 0; i < mergeTasks.length; i++) {
+            final int task = i;
+            final int taskCount = mergeTasks.length;
+            mergeTasks[i] = new Runnable() {
+                @Override
+                public void run() {
+                    for (int ordinal = task; ordinal < mergedLists.length; ordinal += taskCount)
+                        mergedLists[ordinal] = merge(chunkLists.get(ordinal), comparator);
+                }
+            };
+        }
+        runAll(executor, mergeTasks);
+        //endregion
+
+        ArrayList<K> sortedKeys = new ArrayList<>(order.length);
+        Object[] sortedLists = new Object[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys.add(keys.get(order[i]));
+            sortedLists[i] = mergedLists[order[i]];
+        }
+
+        return new CollectionHelper.Groups<>(sortedKeys, sortedLists);
+    }
+
+    /**
+     * Merges sorted lists, on ties the value of the first list wins.
+     */
+    private static <V> List<V> merge(List<List<V>> lists, Comparator<Object> comparator) {
+        if(lists.size() == 1)
+            return lists.get(0);
+
+        int size = 0;
+        for (List<V> list : lists)
+            size += list.size();
+
+        List<V> merged = new ArrayList<>(size);
+        int[] positions = new int[lists.size()];
+        while (merged.size() < size) {
+            int min = -1;
+            for (int i = 0; i < positions.length; i++) {
+                if(positions[i] < lists.get(i).size()
+                        && (min < 0 || comparator.compare(lists.get(i).get(positions[i]), lists.get(min).get(positions[min])) < 0))
+                    min = i;
+            }
+
+            merged.add(lists.get(min).get(positions[min]++));
+        }
+
+        return merged;
+    }
+
+    /**
+     * Runs all tasks but the last one on the executor and the last one on the calling thread and waits for all of them.
+     * Afterwards the calling thread also runs every task which the executor has not started yet, so it never waits for queued tasks,
+     * e.g. of a serial executor which is busy with the caller. An exception of any task is rethrown.
+     */
+    private static void runAll(Executor executor, Runnable[] tasks) {
+        final CountDownLatch latch = new CountDownLatch(tasks.length);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Runnable[] claimableTasks = new Runnable[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            final Runnable task = tasks[i];
+            final AtomicBoolean claimed = new AtomicBoolean();
+            claimableTasks[i] = new Runnable() {
+                @Override
+                public void run() {
+                    if(!claimed.compareAndSet(false, true))
+                        return;
+
+                    try {
+                        task.run();
+                    }
+                    catch (Throwable throwable) {
+                        failure.compareAndSet(null, throwable);
+                    }
+                    finally {
+                        latch.countDown();
+                    }
+                }
+            };
+        }
+
+        for (int i = 0; i < tasks.length - 1; i++)
+            executor.execute(claimableTasks[i]);
+
+        claimableTasks[tasks.length - 1].run();
+        for (int i = 0; i < tasks.length - 1; i++)
+            claimableTasks[i].run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+            Thread.currentThread().interrupt();
+
+        Throwable throwable = failure.get();
+        if(throwable instanceof RuntimeException)
+            throw (RuntimeException) throwable;
+        if(throwable instanceof Error)
+            throw (Error) throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final Comparator<Object> NATURAL_ORDER = new Comparator<Object>() {
+        @Override
+        public int compare(Object lhs, Object rhs) {
+            return ((Comparable<Object>) lhs).compareTo(rhs);
+        }
+    };
+}
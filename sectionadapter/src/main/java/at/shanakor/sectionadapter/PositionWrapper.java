@@ -2,7 +2,11 @@ package at.shanakor.sectionadapter;
 
 /**
  * Wraps an object to attach a position to it.
+ *
+ * @deprecated The adapters no longer wrap their children. Use {@code getItem} together with
+ *             {@code getGlobalChildPosition} respectively {@link SectionIndex#getGlobalChildPosition(int)} instead.
  */
+@Deprecated
 public class PositionWrapper<T> {
     private final T data;
     private final int position;
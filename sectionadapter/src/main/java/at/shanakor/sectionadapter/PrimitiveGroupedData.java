@@ -0,0 +1,145 @@
+package at.shanakor.sectionadapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Grouped data with int, long or char keys, as it is created by the primitive overloads of {@link CollectionHelper}.
+ * The groups are kept in the order of their first value. The keys are stored unboxed in one array and looked up in
+ * an open-addressing map, so no key object and no map entry is allocated per group.
+ * A {@link SectionIndex} built from this data boxes a key only once it is requested, e.g. to bind the section's view.
+ * @param <K> The boxed key type, i.e. {@link Integer}, {@link Long} or {@link Character}.
+ */
+public final class PrimitiveGroupedData<K, V> {
+    static final int KIND_INT = 0;
+    static final int KIND_LONG = 1;
+    static final int KIND_CHAR = 2;
+
+    private final int kind;
+    private final long[] keys;
+    private final Object[] values;
+    private LongIntMap groupsByKey = null;
+
+    private PrimitiveGroupedData(int kind, long[] keys, Object[] values) {
+        this.kind = kind;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    public int getGroupCount() {
+        return keys.length;
+    }
+
+    /**
+     * @return The unboxed key of the given group, chars and ints are widened.
+     */
+    public long getPrimitiveKey(int group) {
+        return keys[group];
+    }
+
+    /**
+     * @return The boxed key of the given group.
+     */
+    public K getKey(int group) {
+        return box(keys[group]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<V> getValues(int group) {
+        return (List<V>) values[group];
+    }
+
+    /**
+     * @return The group of the given key or -1 if there is none.
+     */
+    public synchronized int indexOfKey(long key) {
+        if(groupsByKey == null) {
+            groupsByKey = new LongIntMap(keys.length);
+            for (int i = 0; i < keys.length; i++)
+                groupsByKey.put(keys[i], i);
+        }
+
+        return groupsByKey.get(key);
+    }
+
+    /**
+     * @return The data as a map, which boxes every key.
+     */
+    public LinkedHashMap<K, List<V>> toGroupedData() {
+        LinkedHashMap<K, List<V>> groupedData = new LinkedHashMap<>(CollectionHelper.capacityFor(keys.length));
+        for (int i = 0; i < keys.length; i++)
+            groupedData.put(getKey(i), getValues(i));
+
+        return groupedData;
+    }
+
+    @SuppressWarnings("unchecked")
+    K box(long key) {
+        switch (kind) {
+            case KIND_INT:
+                return (K) Integer.valueOf((int) key);
+            case KIND_CHAR:
+                return (K) Character.valueOf((char) key);
+            default:
+                return (K) Long.valueOf(key);
+        }
+    }
+
+    /**
+     * Groups values by their primitive keys. Like {@link CollectionHelper#group}, every value is hashed once
+     * and every group list is allocated with its final size.
+     */
+    static final class Builder<V> {
+        private final int kind;
+        private final List<V> values;
+        private final int[] ordinalOfValue;
+        private final LongIntMap ordinals = new LongIntMap(16);
+        private long[] keys = new long[16];
+        private int[] counts = new int[16];
+        private int keyCount = 0;
+        private int valueCount = 0;
+
+        Builder(int kind, List<V> values) {
+            this.kind = kind;
+            this.values = values;
+            this.ordinalOfValue = new int[values.size()];
+        }
+
+        /**
+         * Assigns the next value to the group of the given key, the values have to be added in order.
+         */
+        void add(long key) {
+            int ordinal = ordinals.get(key);
+            if(ordinal < 0) {
+                ordinal = keyCount++;
+                ordinals.put(key, ordinal);
+
+                if(ordinal == keys.length) {
+                    keys = Arrays.copyOf(keys, ordinal * 2);
+                    counts = Arrays.copyOf(counts, ordinal * 2);
+                }
+                keys[ordinal] = key;
+            }
+
+            ordinalOfValue[valueCount++] = ordinal;
+            counts[ordinal]++;
+        }
+
+        @SuppressWarnings("unchecked")
+        <K> PrimitiveGroupedData<K, V> build() {
+            Object[] lists = new Object[keyCount];
+            for (int i = 0; i < keyCount; i++)
+                lists[i] = new ArrayList<V>(counts[i]);
+
+            int i = 0;
+            for (V value : values)
+                ((List<V>) lists[ordinalOfValue[i++]]).add(value);
+
+            PrimitiveGroupedData<K, V> data = new PrimitiveGroupedData<>(kind, Arrays.copyOf(keys, keyCount), lists);
+            data.groupsByKey = ordinals;
+            return data;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package at.shanakor.sectionadapter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A {@link GroupedDataProvider} for data with int, long or char keys. The adapters build their {@link SectionIndex}
+ * from {@link #getPrimitiveData()} directly, so a section key is only boxed once it is needed, e.g. by {@code bindGroupView}.
+ * @param <K> The boxed key type, i.e. {@link Integer}, {@link Long} or {@link Character}.
+ */
+public abstract class PrimitiveGroupedDataProvider<K, V> implements GroupedDataProvider<K, V> {
+    /**
+     * @return The correctly grouped data. You can use the primitive overloads of {@link CollectionHelper} for this purpose,
+     *         e.g. {@link CollectionHelper#groupCharKeysByValue(List, CharGrouper)}.
+     */
+    public abstract PrimitiveGroupedData<K, V> getPrimitiveData();
+
+    /**
+     * @return The primitive data as a map, which boxes every key.
+     */
+    @Override
+    public LinkedHashMap<K, List<V>> getData() {
+        return getPrimitiveData().toGroupedData();
+    }
+}
@@ -1,21 +1,25 @@
 package at.shanakor.sectionadapter;
 
 import android.content.Context;
+import android.os.AsyncTask;
 import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * This class serves as the base class for any sectioned adapter.
  * On creation it automatically loads the needed data from the given groupedDataProvider.
  * It can be refreshed via {@link #notifyDatasetChanged} respectively via {@link #notifyDatasetChanged(GroupedDataProvider)} if a new {@link GroupedDataProvider} is wanted.
+ * If a loadExecutor is given, loading and flattening the data happens off the main thread.
+ * If a {@link SectionDiffCallback} is set, a refresh is diffed against the displayed data on a background thread
+ * and only the changed rows are notified.
  */
 public abstract class RecyclerViewSectionAdapter<K, V, VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
-    private Class<K> keyType;
-    protected LinkedHashMap<K, List<V>> groupedData = null;
-
     /**
      * An internal enum to determine whether a section, child or child_divider
      * is being requested to inflate.
@@ -30,17 +34,43 @@ public abstract class RecyclerViewSectionAdapter<K, V, VH extends RecyclerView.V
     private final boolean useCustomChildDividers;
     private GroupedDataProvider<K, V> groupedDataProvider;
 
-    protected Object[] data = null;
-    private int globalChildPos = 0;
+    private SectionIndex<K, V> index = null;
+    private StableIdTable<K, V> stableIds = null;
+    private final SectionSelection<K, V> selection = new SectionSelection<>();
+    private final ViewTypeRegistry<K, V> viewTypeRegistry = new ViewTypeRegistry<>();
+    private final ArrayList<SectionAggregator<V>> aggregators = new ArrayList<>();
+    /** Is read by warm-ups on their executor. */
+    private volatile MetricsListener metricsListener = null;
+
+    private final RowUpdateCallback rowUpdateCallback = new AdapterRowUpdateCallback(this);
+    private final Executor mainExecutor = new MainThreadExecutor();
+    private final SectionDataLoader<K, V> loader = new SectionDataLoader<>(mainExecutor);
+    private final Executor loadExecutor;
+    private RefreshScheduler refreshScheduler = createRefreshScheduler(0);
+    private SectionDiffCallback<V> diffCallback = null;
+    private Executor diffExecutor = null;
 
     /**
      * @param context The context of the enclosing activity.
-     * @param keyType The class of the key type. Unfortunately there is no other way using java generics.
+     * @param keyType The class of the key type. (Only validated, the row types are tracked by the {@link SectionIndex}).
      * @param groupedDataProvider A provider which will be used to get the data to be loaded.
      * @param useCustomChildDividers Whether or not the adapter should insert a custom divider layout between every value.
      *                               If false {@code bindChildView()} is not going to be called.
      */
     public RecyclerViewSectionAdapter(Context context, Class<K> keyType, GroupedDataProvider<K, V> groupedDataProvider, boolean useCustomChildDividers) {
+        this(context, keyType, groupedDataProvider, useCustomChildDividers, null);
+    }
+
+    /**
+     * @param context The context of the enclosing activity.
+     * @param keyType The class of the key type. (Only validated, the row types are tracked by the {@link SectionIndex}).
+     * @param groupedDataProvider A provider which will be used to get the data to be loaded.
+     * @param useCustomChildDividers Whether or not the adapter should insert a custom divider layout between every value.
+     *                               If false {@code bindChildView()} is not going to be called.
+     * @param loadExecutor The executor which loads and flattens the data off the main thread or null to load synchronously.
+     *                     While a load is running the adapter keeps displaying the previous data (respectively no data on creation).
+     */
+    public RecyclerViewSectionAdapter(Context context, Class<K> keyType, GroupedDataProvider<K, V> groupedDataProvider, boolean useCustomChildDividers, Executor loadExecutor) {
         if(context == null)
             throw new IllegalArgumentException("The parameter 'context' can not be null!");
         if(keyType == null)
@@ -49,22 +79,43 @@ public abstract class RecyclerViewSectionAdapter<K, V, VH extends RecyclerView.V
             throw new IllegalArgumentException("The parameter 'groupedDataProvider' can not be null!");
 
         this.context = context;
-        this.keyType = keyType;
         this.useCustomChildDividers = useCustomChildDividers;
         this.groupedDataProvider = groupedDataProvider;
+        this.loadExecutor = loadExecutor;
 
-        LinkedHashMap<K, List<V>> groupedData = groupedDataProvider.getData();
-        this.data = getAdaptedGroupedData(groupedData);
-        this.groupedData = groupedData;
+        if(loadExecutor == null)
+            loadData();
+        else {
+            setIndex(new SectionIndex<>(new LinkedHashMap<K, List<V>>(), useCustomChildDividers, viewTypeRegistry));
+            loadDataAsync(groupedDataProvider, loadExecutor);
+        }
     }
 
     /**
      * Uses the provided groupedDataProvider to load the new data.
+     * If a loadExecutor has been given, the data is loaded in the background and a load which is still running is cancelled.
+     * Without a {@link SectionDiffCallback} all rows are rebound, otherwise the new data is diffed in the background
+     * and the old data stays visible until the fine-grained notifications are dispatched.
      */
     public void notifyDatasetChanged() {
-        this.data = getAdaptedGroupedData(groupedDataProvider.getData());
+        refreshScheduler.cancel();
 
-        super.notifyDataSetChanged();
+        if(loadExecutor != null)
+            loadDataAsync(groupedDataProvider, loadExecutor);
+        else if(diffCallback != null) {
+            final LinkedHashMap<K, List<V>> newGroupedData = groupedDataProvider.getData();
+            loadDataAsync(new GroupedDataProvider<K, V>() {
+                @Override
+                public LinkedHashMap<K, List<V>> getData() {
+                    return newGroupedData;
+                }
+            }, diffExecutor);
+        }
+        else {
+            loader.cancel();
+            loadData();
+            super.notifyDataSetChanged();
+        }
     }
 
     /**
@@ -77,72 +128,518 @@ public abstract class RecyclerViewSectionAdapter<K, V, VH extends RecyclerView.V
         notifyDatasetChanged();
     }
 
+    /**
+     * Requests a refresh via {@link #notifyDatasetChanged()}. All requests of one frame (respectively of the debounce window,
+     * see {@link #setRefreshDebounce}) are coalesced into a single refresh. May be called from any thread.
+     */
+    public void requestRefresh() {
+        refreshScheduler.requestRefresh();
+    }
+
+    /**
+     * @param debounceMillis The window in which {@link #requestRefresh()} calls are coalesced, which starts with the first request.
+     *                       0 coalesces the requests of one frame.
+     */
+    public void setRefreshDebounce(long debounceMillis) {
+        boolean pending = refreshScheduler.isRefreshPending();
+        refreshScheduler.cancel();
+        refreshScheduler = createRefreshScheduler(debounceMillis);
+
+        if(pending)
+            refreshScheduler.requestRefresh();
+    }
+
+    /**
+     * @return The scheduler of {@link #requestRefresh()}, e.g. to read the number of coalesced requests or to refresh right away.
+     */
+    public RefreshScheduler getRefreshScheduler() {
+        return refreshScheduler;
+    }
+
+    private RefreshScheduler createRefreshScheduler(long debounceMillis) {
+        return new RefreshScheduler(new Runnable() {
+            @Override
+            public void run() {
+                notifyDatasetChanged();
+            }
+        }, debounceMillis);
+    }
+
     @Override
     public int getItemCount() {
-        if(data == null)
+        if(index == null)
             return 0;
 
-        return data.length;
+        return index.getRowCount();
     }
 
+    /**
+     * @return The id of the item's key respectively value if {@link IdExtractor}s have been set, otherwise the position.
+     */
     @Override
     public long getItemId(int position) {
-        return position;
+        if(stableIds == null)
+            return position;
+
+        return stableIds.getId(index, position);
     }
 
     /**
-     * @return The {@link ITEM_VIEW_TYPE} of the item at the specified position.
+     * @return The {@link ITEM_VIEW_TYPE} of the item at the specified position or a registered view type.
      */
     @Override
     public int getItemViewType(int position) {
-        return (data[position] == null && useCustomChildDividers) ? ITEM_VIEW_TYPE.CHILD_DIVIDER.ordinal() :
-                (data[position].getClass().isAssignableFrom(keyType)) ? ITEM_VIEW_TYPE.SECTION.ordinal() : ITEM_VIEW_TYPE.CHILD.ordinal();
+        return index.getRowType(position);
     }
 
-    //region Collection Helper methods
     /**
-     * @return An array of objects where each group is represented by a {@link K} object
-     *         each child is represented by a {@link V} object and each childDivider is represented by null.
-     *         ChildDividers are only added if the flag was set accordingly.
+     * Creates the ViewHolder via {@link #inflateViewHolderFor} and counts the inflation if a {@link MetricsListener} is set,
+     * including ViewHolders which are created by {@link #warmUpViewHolders} or a {@link StickyHeaderDecoration}.
      */
-    private Object[] getAdaptedGroupedData(LinkedHashMap<K, List<V>> groupedData){
-        globalChildPos = 0;
+    @Override
+    public final VH onCreateViewHolder(ViewGroup parent, int viewType) {
+        VH holder = inflateViewHolderFor(parent, viewType);
+
+        MetricsListener metricsListener = this.metricsListener;
+        if(metricsListener != null)
+            metricsListener.onViewInflated(viewType);
+
+        return holder;
+    }
 
-        List<Object> adaptedGroupedData = new LinkedList<>();
+    /**
+     * @param viewType The ordinal of the row's {@link ITEM_VIEW_TYPE} or a registered view type.
+     * @return A new ViewHolder with a correctly inflated view depending on the given viewType.
+     */
+    protected abstract VH inflateViewHolderFor(ViewGroup parent, int viewType);
 
-        Object[] keys = groupedData.keySet().toArray();
-        K key;
-        for (int i = keys.length - 1; i >= 0; i--) {
-            key = (K) keys[i];
+    /**
+     * Conveniently calls {@code bindSectionViewHolder}, {@code bindChildViewHolder} or {@code bindChildDividerViewHolder}
+     * depending on the type of the row.
+     */
+    @Override
+    public void onBindViewHolder(VH holder, int position) {
+        bind(holder, position, null);
+    }
 
-            adaptedGroupedData.add(key);
-            adaptedGroupedData.addAll(getAdaptedValues(groupedData.get(key)));
+    /**
+     * Calls the payload variants of the bind methods if the change notification carried payloads (see {@link SectionDiffCallback#getChangePayload}),
+     * otherwise the full bind methods.
+     * Measures the bind time if a {@link MetricsListener} is set.
+     */
+    @Override
+    public void onBindViewHolder(VH holder, int position, List<Object> payloads) {
+        if(metricsListener == null) {
+            bind(holder, position, payloads);
+            return;
         }
 
-        return adaptedGroupedData.toArray(new Object[adaptedGroupedData.size()]);
+        int type = getItemViewType(position);
+        long start = System.nanoTime();
+        bind(holder, position, payloads);
+        metricsListener.onViewBound(type, System.nanoTime() - start);
+    }
+
+    private void bind(VH holder, int position, List<Object> payloads) {
+        int type = index.getRowType(position);
+        boolean partial = payloads != null && !payloads.isEmpty();
+
+        if(viewTypeRegistry.isSectionType(type)) {
+            int section = index.getSectionForPosition(position);
+            if(partial)
+                bindSectionViewHolder(holder, index.getSectionKey(section), section, payloads);
+            else
+                bindSectionViewHolder(holder, index.getSectionKey(section), section);
+        }
+        else if(type != ITEM_VIEW_TYPE.CHILD_DIVIDER.ordinal()) {
+            if(partial)
+                bindChildViewHolder(holder, index.getChild(position), index.getPositionInSection(position), index.getGlobalChildPosition(position), payloads);
+            else
+                bindChildViewHolder(holder, index.getChild(position), index.getPositionInSection(position), index.getGlobalChildPosition(position));
+        }
+        else
+            bindChildDividerViewHolder(holder);
     }
 
     /**
-     * Adds a null value after every entry, except the first one.
+     * Binds the given key's data to the given holder.
+     * @param section The index of the section.
      */
-    private List<Object> getAdaptedValues(List<V> values) {
-        List<Object> objects = new LinkedList<>();
+    protected abstract void bindSectionViewHolder(VH holder, K key, int section);
 
-        int i = 0;
-        for (V value : values) {
-            if(useCustomChildDividers && i > 0)
-                objects.add(null);
+    /**
+     * Updates the parts of the section holder which are described by the payloads. Rebinds the whole holder by default.
+     */
+    protected void bindSectionViewHolder(VH holder, K key, int section, List<Object> payloads) {
+        bindSectionViewHolder(holder, key, section);
+    }
 
-            objects.add(new PositionWrapper(value, globalChildPos));
-            i++;
-            globalChildPos++;
+    /**
+     * Binds the given value's data to the given holder.
+     * @param posInGroup The position inside a group.
+     * @param globalChildPos The position of the child in a global context. (To enumerate children across groups).
+     */
+    protected abstract void bindChildViewHolder(VH holder, V value, int posInGroup, int globalChildPos);
+
+    /**
+     * Updates the parts of the child holder which are described by the payloads, e.g. only a presence indicator.
+     * Rebinds the whole holder by default.
+     */
+    protected void bindChildViewHolder(VH holder, V value, int posInGroup, int globalChildPos, List<Object> payloads) {
+        bindChildViewHolder(holder, value, posInGroup, globalChildPos);
+    }
+
+    /**
+     * Binds any data to the childDivider holder.
+     */
+    protected void bindChildDividerViewHolder(VH holder) {
+    }
+
+    /**
+     * Loads and flattens the data on the given executor and computes the aggregates there. If a {@link SectionDiffCallback} is set, the new index is diffed
+     * against the displayed one on the same executor. The new index is swapped in on the main thread.
+     * If the displayed index has been modified in the meantime or has collapsed sections, the diff does not match the displayed rows
+     * and all rows are rebound instead.
+     */
+    private void loadDataAsync(GroupedDataProvider<K, V> provider, Executor executor) {
+        final SectionIndex<K, V> oldIndex = index;
+        final int oldModificationCount = index.getModificationCount();
+        final LinkedHashMap<K, List<V>> oldGroupedData = diffCallback == null ? null : index.getGroupedData();
+        final SectionDiffCallback<V> callback = diffCallback;
+        final List<SectionAggregator<V>> aggregators = new ArrayList<>(this.aggregators);
+
+        loader.load(executor, provider, useCustomChildDividers, viewTypeRegistry, new SectionDataLoader.Listener<K, V, SectionDiff<K, V>>() {
+            @Override
+            public SectionDiff<K, V> onIndexBuilt(SectionIndex<K, V> newIndex, CancellationToken token) {
+                newIndex.setAggregators(aggregators);
+                if(callback == null)
+                    return null;
+
+                return SectionDiff.calculate(oldGroupedData, newIndex, callback);
+            }
+
+            @Override
+            public void onLoadFinished(SectionIndex<K, V> newIndex, SectionDiff<K, V> diff) {
+                boolean canDispatchDiff = diff != null && index == oldIndex && index.getModificationCount() == oldModificationCount
+                        && index.getCollapsedSectionCount() == 0;
+                setIndex(newIndex);
+
+                if(canDispatchDiff) {
+                    diff.dispatchUpdatesTo(RecyclerViewSectionAdapter.this);
+                    notifyChangedAggregates(oldIndex, newIndex);
+                }
+                else
+                    RecyclerViewSectionAdapter.super.notifyDataSetChanged();
+            }
+        });
+    }
+
+    /**
+     * Rebinds the headers of the retained sections whose aggregates have changed, which the diff does not cover.
+     */
+    private void notifyChangedAggregates(SectionIndex<K, V> oldIndex, SectionIndex<K, V> newIndex) {
+        int count = aggregators.size();
+        if(count == 0 || oldIndex.getAggregatorCount() != count || newIndex.getAggregatorCount() != count)
+            return;
+
+        Object[] oldKeys = oldIndex.getSections();
+        HashMap<Object, Integer> oldSections = new HashMap<>(CollectionHelper.capacityFor(oldKeys.length));
+        for (int section = 0; section < oldKeys.length; section++)
+            oldSections.put(oldKeys[section], section);
+
+        Object[] newKeys = newIndex.getSections();
+        for (int section = 0; section < newKeys.length; section++) {
+            Integer oldSection = oldSections.get(newKeys[section]);
+            if(oldSection == null)
+                continue;
+
+            for (int aggregator = 0; aggregator < count; aggregator++) {
+                if(oldIndex.getAggregate(oldSection, aggregator) != newIndex.getAggregate(section, aggregator)) {
+                    notifyItemChanged(newIndex.getPositionForSection(section));
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Displays previously persisted data right away, e.g. the result of {@link SectionIndexSnapshot#read} on a cold start.
+     * The load which is running in the background keeps running and replaces the snapshot once it has finished.
+     * @return False if no load is running, then the fresh data is displayed already and the snapshot is ignored.
+     */
+    public boolean showSnapshot(LinkedHashMap<K, List<V>> snapshot) {
+        if(snapshot == null)
+            throw new IllegalArgumentException("The parameter 'snapshot' can not be null!");
+        if(!loader.isLoading())
+            return false;
+
+        setIndex(new SectionIndex<>(snapshot, useCustomChildDividers, viewTypeRegistry));
+        super.notifyDataSetChanged();
+        return true;
+    }
+
+    /**
+     * Loads the data of the current groupedDataProvider and flattens it into a new {@link SectionIndex}.
+     */
+    private void loadData() {
+        setIndex(loader.loadSynchronously(groupedDataProvider, useCustomChildDividers, viewTypeRegistry));
+    }
+
+    /**
+     * Swaps in the new index, the sections which are collapsed in the old one stay collapsed.
+     * The aggregates are computed here unless the load has computed them already.
+     */
+    private void setIndex(SectionIndex<K, V> index) {
+        if(this.index != null && this.index.getCollapsedSectionCount() > 0)
+            index.collapseSections(this.index.getCollapsedSectionKeys());
+
+        if(index.getAggregatorCount() != aggregators.size())
+            index.setAggregators(aggregators);
+
+        selection.onIndexReplaced(index, stableIds == null ? null : stableIds.getValueIdExtractor());
+        this.index = index;
+    }
+
+    /**
+     * Rebinds the rows of the given children, e.g. once a page of a {@link PagedGroupedDataProvider} has been loaded.
+     * @param globalChildPosition The global position of the first changed child.
+     * @param count The number of changed children.
+     */
+    public void notifyGlobalChildRangeChanged(int globalChildPosition, int count) {
+        int end = Math.min(globalChildPosition + count, index.getChildCount());
+        while (globalChildPosition < end) {
+            int section = index.getSectionForGlobalChild(globalChildPosition);
+            int sectionEnd = Math.min(end, index.getGlobalChildPositionForSection(section) + index.getChildCount(section));
+
+            if(!index.isSectionCollapsed(section)) {
+                int firstRow = index.getPositionForGlobalChild(globalChildPosition);
+                int lastRow = index.getPositionForGlobalChild(sectionEnd - 1);
+                notifyItemRangeChanged(firstRow, lastRow - firstRow + 1);
+            }
+
+            globalChildPosition = sectionEnd;
         }
+    }
+
+    //region Modifications
+    /**
+     * Inserts a child without reloading the data and notifies the inserted rows.
+     */
+    public void insertChild(int section, int positionInSection, V value) {
+        index.insertChild(section, positionInSection, value, rowUpdateCallback);
+        selection.onChildInserted(index.getGlobalChildPositionForSection(section) + positionInSection);
+        notifyAggregatesChanged(section);
+    }
+
+    /**
+     * Removes a child without reloading the data and notifies the removed rows.
+     * @return The removed child.
+     */
+    public V removeChild(int section, int positionInSection) {
+        V value = index.removeChild(section, positionInSection, rowUpdateCallback);
+        selection.onChildRemoved(section, index.getGlobalChildPositionForSection(section) + positionInSection);
+        notifyAggregatesChanged(section);
+
+        return value;
+    }
 
-        return objects;
+    /**
+     * Moves a child inside a section or into another section without reloading the data and notifies the moved rows.
+     */
+    public void moveChild(int fromSection, int fromPosition, int toSection, int toPosition) {
+        int fromGlobalChildPosition = index.getGlobalChildPositionForSection(fromSection) + fromPosition;
+        index.moveChild(fromSection, fromPosition, toSection, toPosition, rowUpdateCallback);
+        selection.onChildMoved(fromSection, fromGlobalChildPosition, index.getGlobalChildPositionForSection(toSection) + toPosition);
+        if(fromSection != toSection) {
+            notifyAggregatesChanged(fromSection);
+            notifyAggregatesChanged(toSection);
+        }
+    }
+
+    /**
+     * Replaces a child without reloading the data and notifies the changed row.
+     * @param payload Describes the change for the payload variant of {@code bindChildViewHolder} or null to rebind the whole row.
+     * @return The replaced child.
+     */
+    public V updateChild(int section, int positionInSection, V value, Object payload) {
+        V oldValue = index.setChild(section, positionInSection, value, rowUpdateCallback, payload);
+        notifyAggregatesChanged(section);
+
+        return oldValue;
+    }
+
+    /**
+     * Notifies that a child has been changed in place, e.g. its presence state. If aggregators are registered, the aggregates
+     * of the section are recomputed, which iterates its children, and the header is rebound.
+     * @param payload Describes the change for the payload variant of {@code bindChildViewHolder} or null to rebind the whole row.
+     */
+    public void notifyChildChanged(int section, int positionInSection, Object payload) {
+        index.refreshAggregates(section);
+        if(!index.isSectionCollapsed(section))
+            notifyItemChanged(index.getPositionForChild(section, positionInSection), payload);
+        notifyAggregatesChanged(section);
+    }
+
+    /**
+     * Rebinds the header of the given section if it may show aggregates.
+     */
+    private void notifyAggregatesChanged(int section) {
+        if(!aggregators.isEmpty())
+            notifyItemChanged(index.getPositionForSection(section));
+    }
+
+    /**
+     * Notifies that a section key has been changed in place, e.g. a counter inside the header.
+     * @param payload Describes the change for the payload variant of {@code bindSectionViewHolder} or null to rebind the whole row.
+     */
+    public void notifySectionChanged(int section, Object payload) {
+        notifyItemChanged(index.getPositionForSection(section), payload);
+    }
+
+    /**
+     * Inserts a section without reloading the data and notifies the inserted rows.
+     */
+    public void insertSection(int section, K key, List<V> values) {
+        index.insertSection(section, key, values, rowUpdateCallback);
+        selection.onSectionInserted(section, index.getGlobalChildPositionForSection(section), values.size());
+    }
+
+    /**
+     * Removes a section with all its children without reloading the data and notifies the removed rows.
+     */
+    public void removeSection(int section) {
+        int globalChildPosition = index.getGlobalChildPositionForSection(section);
+        int childCount = index.getChildCount(section);
+        index.removeSection(section, rowUpdateCallback);
+        selection.onSectionRemoved(section, globalChildPosition, childCount);
+    }
+
+    /**
+     * Hides the children of the given section and notifies the removed rows in one range.
+     */
+    public void collapseSection(int section) {
+        index.collapseSection(section, rowUpdateCallback);
+    }
+
+    /**
+     * Shows the children of a collapsed section again and notifies the inserted rows in one range.
+     */
+    public void expandSection(int section) {
+        index.expandSection(section, rowUpdateCallback);
+    }
+
+    public boolean isSectionCollapsed(int section) {
+        return index.isSectionCollapsed(section);
+    }
+    //endregion
+
+    //region Aggregates
+    /**
+     * Registers an aggregate of every section, e.g. the number of unread messages shown inside the header.
+     * It is computed along with every load and updated by the modification methods of this adapter, which rebind the header
+     * of the modified section. A diffed reload rebinds the headers whose aggregates have changed.
+     * Data which is loaded lazily, i.e. a {@link PagedGroupedDataProvider} or a snapshot of {@link #showSnapshot}, is not aggregated,
+     * its sections report the aggregate of an empty section until the next regular load.
+     * @return The id to read the aggregate via {@link #getSectionAggregate}.
+     */
+    public int registerAggregator(SectionAggregator<V> aggregator) {
+        if(aggregator == null)
+            throw new IllegalArgumentException("The parameter 'aggregator' can not be null!");
+
+        aggregators.add(aggregator);
+        index.setAggregators(aggregators);
+        super.notifyDataSetChanged();
+        return aggregators.size() - 1;
+    }
+
+    /**
+     * @param aggregator The id returned by {@link #registerAggregator}.
+     * @return The aggregate of the given section in O(1), e.g. inside {@code bindSectionViewHolder}.
+     */
+    public long getSectionAggregate(int section, int aggregator) {
+        return index.getAggregate(section, aggregator);
+    }
+    //endregion
+
+    //region View types
+    /**
+     * Registers an additional section view type, e.g. for pinned sections. Sections whose key matches use the returned
+     * view type, which is passed to {@link #inflateViewHolderFor} and keeps its own pool of ViewHolders.
+     * @return The new view type.
+     */
+    public int registerSectionViewType(ViewTypeRegistry.Matcher<K> matcher) {
+        return onViewTypeRegistered(viewTypeRegistry.registerSectionType(matcher));
+    }
+
+    /**
+     * Registers an additional child view type, e.g. for pinned contacts. Children which match use the returned
+     * view type, which is passed to {@link #inflateViewHolderFor} and keeps its own pool of ViewHolders.
+     * @return The new view type.
+     */
+    public int registerChildViewType(ViewTypeRegistry.Matcher<V> matcher) {
+        return onViewTypeRegistered(viewTypeRegistry.registerChildType(matcher));
+    }
+
+    /**
+     * @return Whether the given view type is {@link ITEM_VIEW_TYPE#SECTION} or a registered section view type.
+     */
+    public boolean isSectionViewType(int viewType) {
+        return viewTypeRegistry.isSectionType(viewType);
+    }
+
+    private int onViewTypeRegistered(int type) {
+        index.setViewTypeRegistry(viewTypeRegistry);
+        super.notifyDataSetChanged();
+        return type;
+    }
+    //endregion
+
+    //region Warm-up
+    /**
+     * Creates the given number of ViewHolders of a view type on the executor, e.g. while the data loads, and puts them
+     * into the RecycledViewPool of the RecyclerView, so the first fling does not have to inflate them.
+     * A {@link SectionViewPool} is grown to the given number, other pools keep their sizes.
+     * The layouts are inflated off the main thread, so they must not require a Looper while inflating.
+     * @param parent The RecyclerView which displays this adapter.
+     * @param executor A background executor.
+     */
+    public void warmUpViewHolders(final RecyclerView parent, Executor executor, final int viewType, final int count) {
+        if(parent == null)
+            throw new IllegalArgumentException("The parameter 'parent' can not be null!");
+        if(executor == null)
+            throw new IllegalArgumentException("The parameter 'executor' can not be null!");
+
+        final RecyclerView.RecycledViewPool pool = parent.getRecycledViewPool();
+        if(pool instanceof SectionViewPool)
+            ((SectionViewPool) pool).ensureCapacity(viewType, count);
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<VH> holders = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    holders.add(createViewHolder(parent, viewType));
+
+                mainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (VH holder : holders)
+                            pool.putRecycledView(holder);
+                    }
+                });
+            }
+        });
     }
     //endregion
 
     //region Getter and Setter
+    /**
+     * @return The selected children, which follow the modifications and reloads of this adapter.
+     */
+    public SectionSelection<K, V> getSelection() {
+        return selection;
+    }
+
     protected Context getContext(){
         return this.context;
     }
@@ -151,12 +648,97 @@ public abstract class RecyclerViewSectionAdapter<K, V, VH extends RecyclerView.V
         return groupedDataProvider;
     }
 
+    /**
+     * @return The displayed data, including any modifications.
+     */
     public LinkedHashMap<K, List<V>> getGroupedData() {
-        return groupedData;
+        return index.getGroupedData();
+    }
+
+    /**
+     * Enables fine-grained change notifications on refresh. The diff is calculated on the loadExecutor if one has been given,
+     * otherwise on {@link AsyncTask#THREAD_POOL_EXECUTOR}.
+     * @param diffCallback Compares the children of two data loads or null to rebind all rows on refresh.
+     */
+    public void setDiffCallback(SectionDiffCallback<V> diffCallback) {
+        setDiffCallback(diffCallback, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Enables fine-grained change notifications on refresh.
+     * @param diffCallback Compares the children of two data loads or null to rebind all rows on refresh.
+     * @param diffExecutor The executor which calculates the diff off the main thread, unless a loadExecutor has been given.
+     */
+    public void setDiffCallback(SectionDiffCallback<V> diffCallback, Executor diffExecutor) {
+        if(diffCallback != null && diffExecutor == null)
+            throw new IllegalArgumentException("The parameter 'diffExecutor' can not be null!");
+
+        this.diffCallback = diffCallback;
+        this.diffExecutor = diffExecutor;
+    }
+
+    /**
+     * Lets {@link #getItemId} return stable ids, so {@code setHasStableIds(true)} can be enabled and ViewHolders
+     * are reused across full refreshes.
+     * Section rows use the id of their key, child rows the id of their value and divider rows the id of the following child,
+     * each tagged with the row type in the top two bits. So keys and values only have to be unique in their lower 62 bits among themselves.
+     * Both extractors are required, stable ids are disabled if either of them is null.
+     * @param keyIdExtractor Determines the ids of the section keys or null to disable stable ids.
+     * @param valueIdExtractor Determines the ids of the values or null to disable stable ids.
+     */
+    public void setIdExtractors(IdExtractor<K> keyIdExtractor, IdExtractor<V> valueIdExtractor) {
+        if(keyIdExtractor == null || valueIdExtractor == null)
+            stableIds = null;
+        else
+            stableIds = new StableIdTable<>(keyIdExtractor, valueIdExtractor);
+    }
+
+    /**
+     * @param id A row id as returned by {@link #getItemId}, which is the value id for children with non negative value ids.
+     * @return The adapter position of the row with the given id or -1 if there is none (respectively no {@link IdExtractor}s have been set).
+     */
+    public int getPositionForId(long id) {
+        if(stableIds == null)
+            return -1;
+
+        return stableIds.getPosition(index, id);
+    }
+
+    /**
+     * @param metricsListener Receives load, flatten, inflate and bind timings or null to stop measuring.
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+        loader.setMetricsListener(metricsListener);
     }
 
+    protected MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    protected SectionIndex<K, V> getSectionIndex() {
+        return index;
+    }
+
+    /**
+     * @return The key for section rows, the value for child rows and null for childDivider rows.
+     */
     public Object getItem(int position){
-        return data[position];
+        return index.getItem(position);
+    }
+
+    /**
+     * @return The position inside a group of the child at the given adapter position.
+     */
+    public int getPositionInSection(int position) {
+        return index.getPositionInSection(position);
+    }
+
+    /**
+     * @return The position of the child at the given adapter position in a global context. (To enumerate children across groups).
+     */
+    public int getGlobalChildPosition(int position) {
+        return index.getGlobalChildPosition(position);
     }
     //endregion
 }
@@ -0,0 +1,132 @@
+package at.shanakor.sectionadapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces bursts of refresh requests, e.g. during a sync, into a single refresh.
+ * The first request marks the data dirty and schedules the refresh for the next frame respectively the end of the debounce window,
+ * all further requests until then are absorbed. So a refresh happens at most once per frame (or window) and never later than that.
+ * <p>
+ * Requests can be made from any thread, the refresh always runs on the main thread.
+ */
+public class RefreshScheduler {
+    private final Runnable refresh;
+    private final long debounceMillis;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong coalescedRequestCount = new AtomicLong();
+
+    private final Runnable scheduledRefresh = new Runnable() {
+        @Override
+        public void run() {
+            if(pending.compareAndSet(true, false))
+                runRefresh();
+        }
+    };
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            scheduledRefresh.run();
+        }
+    };
+
+    private final Runnable postFrameCallback = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    };
+
+    /**
+     * Coalesces all requests of one frame.
+     * @param refresh Refreshes the data, e.g. calls {@code notifyDataSetChanged} of the adapter.
+     */
+    public RefreshScheduler(Runnable refresh) {
+        this(refresh, 0);
+    }
+
+    /**
+     * @param refresh Refreshes the data, e.g. calls {@code notifyDataSetChanged} of the adapter.
+     * @param debounceMillis The window in which requests are coalesced, which starts with the first request. 0 coalesces the requests of one frame.
+     */
+    public RefreshScheduler(Runnable refresh, long debounceMillis) {
+        if(refresh == null)
+            throw new IllegalArgumentException("The parameter 'refresh' can not be null!");
+        if(debounceMillis < 0)
+            throw new IllegalArgumentException("The parameter 'debounceMillis' can not be negative!");
+
+        this.refresh = refresh;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Marks the data dirty. The refresh is scheduled unless it is pending already.
+     */
+    public void requestRefresh() {
+        requestCount.incrementAndGet();
+        if(!pending.compareAndSet(false, true)) {
+            coalescedRequestCount.incrementAndGet();
+            return;
+        }
+
+        if(debounceMillis > 0)
+            handler.postDelayed(scheduledRefresh, debounceMillis);
+        else if(Looper.myLooper() == Looper.getMainLooper())
+            postFrameCallback.run();
+        else
+            handler.post(postFrameCallback);
+    }
+
+    /**
+     * Refreshes immediately and drops the pending refresh, if any. Has to be called on the main thread.
+     */
+    public void refreshNow() {
+        cancel();
+        runRefresh();
+    }
+
+    /**
+     * Drops the pending refresh, e.g. because the data has been refreshed in another way.
+     */
+    public void cancel() {
+        if(pending.compareAndSet(true, false)) {
+            handler.removeCallbacks(scheduledRefresh);
+            handler.removeCallbacks(postFrameCallback);
+            if(Looper.myLooper() == Looper.getMainLooper())
+                Choreographer.getInstance().removeFrameCallback(frameCallback);
+        }
+    }
+
+    public boolean isRefreshPending() {
+        return pending.get();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * @return The number of requests which have been absorbed by a refresh of an earlier request, to tune the debounce window.
+     */
+    public long getCoalescedRequestCount() {
+        return coalescedRequestCount.get();
+    }
+
+    private void runRefresh() {
+        refreshCount.incrementAndGet();
+        refresh.run();
+    }
+}
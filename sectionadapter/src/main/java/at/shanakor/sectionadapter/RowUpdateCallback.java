@@ -0,0 +1,16 @@
+package at.shanakor.sectionadapter;
+
+/**
+ * Receives updates of the flattened rows of a {@link SectionIndex}.
+ * The positions are valid in the order the updates are dispatched.
+ * The methods match {@code ListUpdateCallback}, so a RecyclerView adapter can forward them to its {@code notifyItem*} methods.
+ */
+public interface RowUpdateCallback {
+    void onInserted(int position, int count);
+
+    void onRemoved(int position, int count);
+
+    void onMoved(int fromPosition, int toPosition);
+
+    void onChanged(int position, int count, Object payload);
+}
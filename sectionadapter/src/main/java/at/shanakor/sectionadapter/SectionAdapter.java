@@ -1,23 +1,26 @@
 package at.shanakor.sectionadapter;
 
 import android.content.Context;
+import android.database.DataSetObserver;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * This class serves as the base class for any sectioned adapter.
  * On creation it automatically loads the needed data from the given groupedDataProvider.
  * It can be refreshed via {@link #notifyDataSetChanged} respectively via {@link #notifyDataSetChanged(GroupedDataProvider)} if a new {@link GroupedDataProvider} is wanted.
+ * If a loadExecutor is given, loading and flattening the data happens off the main thread.
  */
 public abstract class SectionAdapter<K, V> extends BaseAdapter {
-    private Class<K> keyType;
-    protected LinkedHashMap<K, List<V>> groupedData = null;
-
     /**
      * An internal enum to determine whether a section, child or child_divider
      * is being requested to inflate.
@@ -28,21 +31,68 @@ public abstract class SectionAdapter<K, V> extends BaseAdapter {
         CHILD_DIVIDER
     }
 
+    /**
+     * Inflates and binds the views of a registered section view type.
+     */
+    public interface GroupViewBinder<K> {
+        View inflateView(ViewGroup parent);
+
+        void bindView(K key, View groupView, boolean isFirstGroup);
+    }
+
+    /**
+     * Inflates and binds the views of a registered child view type.
+     */
+    public interface ChildViewBinder<V> {
+        View inflateView(ViewGroup parent);
+
+        void bindView(V value, View childView, int posInGroup, int globalChildPos);
+    }
+
     private final Context context;
     private final boolean useCustomChildDividers;
     private GroupedDataProvider<K, V> groupedDataProvider;
 
-    protected Object[] data = null;
-    private int globalChildPos = 0;
+    private SectionIndex<K, V> index = null;
+    private StableIdTable<K, V> stableIds = null;
+    private final SectionSelection<K, V> selection = new SectionSelection<>();
+    private final ViewTypeRegistry<K, V> viewTypeRegistry = new ViewTypeRegistry<>();
+    private final ArrayList<SectionAggregator<V>> aggregators = new ArrayList<>();
+    /** Is read by warm-ups on their executor. */
+    private volatile MetricsListener metricsListener = null;
+    /** The binder of every registered view type, starting at {@link ViewTypeRegistry#FIRST_CUSTOM_TYPE}. */
+    private Object[] binders = new Object[0];
+
+    private final Executor mainExecutor = new MainThreadExecutor();
+    private final SectionDataLoader<K, V> loader = new SectionDataLoader<>(mainExecutor);
+    /** The views of every view type which have been inflated by {@link #warmUpViews}. */
+    private final SparseArray<ArrayDeque<View>> warmViews = new SparseArray<>();
+    /** Is incremented whenever the warm views are cleared, so the views of warm-ups which are still running are dropped. */
+    private int warmUpGeneration = 0;
+    private final Executor loadExecutor;
+    private RefreshScheduler refreshScheduler = createRefreshScheduler(0);
 
     /**
      * @param context The context of the enclosing activity.
-     * @param keyType The class of the key type. Unfortunately there is no other way using java generics.
+     * @param keyType The class of the key type. (Only validated, the row types are tracked by the {@link SectionIndex}).
      * @param groupedDataProvider A provider which will be used to get the data to be loaded.
      * @param useCustomChildDividers Whether or not the adapter should insert a custom divider layout between every value.
      *                               If false {@code bindChildView()} is not going to be called.
      */
     public SectionAdapter(Context context, Class<K> keyType, GroupedDataProvider<K, V> groupedDataProvider, boolean useCustomChildDividers) {
+        this(context, keyType, groupedDataProvider, useCustomChildDividers, null);
+    }
+
+    /**
+     * @param context The context of the enclosing activity.
+     * @param keyType The class of the key type. (Only validated, the row types are tracked by the {@link SectionIndex}).
+     * @param groupedDataProvider A provider which will be used to get the data to be loaded.
+     * @param useCustomChildDividers Whether or not the adapter should insert a custom divider layout between every value.
+     *                               If false {@code bindChildView()} is not going to be called.
+     * @param loadExecutor The executor which loads and flattens the data off the main thread or null to load synchronously.
+     *                     While a load is running the adapter keeps displaying the previous data (respectively no data on creation).
+     */
+    public SectionAdapter(Context context, Class<K> keyType, GroupedDataProvider<K, V> groupedDataProvider, boolean useCustomChildDividers, Executor loadExecutor) {
         if(context == null)
             throw new IllegalArgumentException("The parameter 'context' can not be null!");
         if(keyType == null)
@@ -51,21 +101,34 @@ public abstract class SectionAdapter<K, V> extends BaseAdapter {
             throw new IllegalArgumentException("The parameter 'groupedDataProvider' can not be null!");
 
         this.context = context;
-        this.keyType = keyType;
         this.useCustomChildDividers = useCustomChildDividers;
         this.groupedDataProvider = groupedDataProvider;
+        this.loadExecutor = loadExecutor;
 
-        LinkedHashMap<K, List<V>> groupedData = groupedDataProvider.getData();
-        this.data = getAdaptedGroupedData(groupedData);
-        this.groupedData = groupedData;
+        if(loadExecutor == null)
+            loadData();
+        else {
+            setIndex(new SectionIndex<>(new LinkedHashMap<K, List<V>>(), useCustomChildDividers, viewTypeRegistry));
+            loadDataAsync();
+        }
     }
 
     /**
      * Uses the provided groupedDataProvider to load the new data.
+     * If a loadExecutor has been given, the data is loaded in the background and a load which is still running is cancelled.
+     * The views are refreshed once the new data has been swapped in.
      */
     @Override
     public void notifyDataSetChanged() {
-        this.data = getAdaptedGroupedData(groupedDataProvider.getData());
+        refreshScheduler.cancel();
+
+        if(loadExecutor != null) {
+            loadDataAsync();
+            return;
+        }
+
+        loader.cancel();
+        loadData();
 
         super.notifyDataSetChanged();
     }
@@ -80,39 +143,91 @@ public abstract class SectionAdapter<K, V> extends BaseAdapter {
         notifyDataSetChanged();
     }
 
+    /**
+     * Requests a refresh via {@link #notifyDataSetChanged()}. All requests of one frame (respectively of the debounce window,
+     * see {@link #setRefreshDebounce}) are coalesced into a single refresh. May be called from any thread.
+     */
+    public void requestRefresh() {
+        refreshScheduler.requestRefresh();
+    }
+
+    /**
+     * @param debounceMillis The window in which {@link #requestRefresh()} calls are coalesced, which starts with the first request.
+     *                       0 coalesces the requests of one frame.
+     */
+    public void setRefreshDebounce(long debounceMillis) {
+        boolean pending = refreshScheduler.isRefreshPending();
+        refreshScheduler.cancel();
+        refreshScheduler = createRefreshScheduler(debounceMillis);
+
+        if(pending)
+            refreshScheduler.requestRefresh();
+    }
+
+    /**
+     * @return The scheduler of {@link #requestRefresh()}, e.g. to read the number of coalesced requests or to refresh right away.
+     */
+    public RefreshScheduler getRefreshScheduler() {
+        return refreshScheduler;
+    }
+
+    private RefreshScheduler createRefreshScheduler(long debounceMillis) {
+        return new RefreshScheduler(new Runnable() {
+            @Override
+            public void run() {
+                notifyDataSetChanged();
+            }
+        }, debounceMillis);
+    }
+
     @Override
     public int getCount() {
-        if(data == null)
+        if(index == null)
             return 0;
 
-        return data.length;
+        return index.getRowCount();
     }
 
+    /**
+     * @return The key for section rows, the value for child rows and null for childDivider rows.
+     */
     @Override
     public Object getItem(int position) {
-        return data[position];
+        return index.getItem(position);
     }
 
+    /**
+     * @return The id of the item's key respectively value if {@link IdExtractor}s have been set, otherwise the position.
+     */
     @Override
     public long getItemId(int position) {
-        return position;
+        if(stableIds == null)
+            return position;
+
+        return stableIds.getId(index, position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return stableIds != null;
     }
 
     @Override
     public int getViewTypeCount() {
-        if(useCustomChildDividers)
+        if(viewTypeRegistry.getViewTypeCount() > ViewTypeRegistry.FIRST_CUSTOM_TYPE)
+            return viewTypeRegistry.getViewTypeCount();
+        else if(useCustomChildDividers)
             return ITEM_VIEW_TYPE.values().length;
         else
             return ITEM_VIEW_TYPE.values().length - 1;
     }
 
     /**
-     * @return The {@link ITEM_VIEW_TYPE} of the item at the specified position.
+     * @return The {@link ITEM_VIEW_TYPE} of the item at the specified position or a registered view type.
      */
     @Override
     public int getItemViewType(int position) {
-        return (data[position] == null && useCustomChildDividers) ? ITEM_VIEW_TYPE.CHILD_DIVIDER.ordinal() :
-                (data[position].getClass().isAssignableFrom(keyType)) ? ITEM_VIEW_TYPE.SECTION.ordinal() : ITEM_VIEW_TYPE.CHILD.ordinal();
+        return index.getRowType(position);
     }
 
     /**
@@ -121,33 +236,78 @@ public abstract class SectionAdapter<K, V> extends BaseAdapter {
     @Override
     public boolean isEnabled(int position) {
         int type = getItemViewType(position);
-        return  type != ITEM_VIEW_TYPE.SECTION.ordinal() && type != ITEM_VIEW_TYPE.CHILD_DIVIDER.ordinal();
+        return !viewTypeRegistry.isSectionType(type) && type != ITEM_VIEW_TYPE.CHILD_DIVIDER.ordinal();
     }
 
     /**
      * Implements cell reuse and conveniently calls {@code bindGroupView}, {@code bindChildView} or
      * {@code bindChildDividerView} depending on the requested {@link ITEM_VIEW_TYPE}.
+     * Rows of registered view types are inflated and bound by their binders.
      */
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
-        Object object = getItem(position);
         final int type = getItemViewType(position);
 
         if(convertView == null)
-            convertView = inflateViewFor(type, parent);
+            convertView = takeWarmView(type);
 
-        if(type == ITEM_VIEW_TYPE.SECTION.ordinal())
-            bindGroupView((K) object, convertView, position == 0);
-        else if(type == ITEM_VIEW_TYPE.CHILD.ordinal()) {
-            PositionWrapper<V> positionWrapper = (PositionWrapper<V>) object;
-            bindChildView(positionWrapper.getData(), convertView, position, positionWrapper.getPosition());
+        if(convertView == null)
+            convertView = inflateView(type, parent);
+
+        if(metricsListener == null)
+            bindView(type, position, convertView);
+        else {
+            long start = System.nanoTime();
+            bindView(type, position, convertView);
+            metricsListener.onViewBound(type, System.nanoTime() - start);
         }
-        else
-            bindChildDividerView();
 
         return convertView;
     }
 
+    /**
+     * Inflates a view of the given type and counts the inflation, also for the views of {@link #warmUpViews}.
+     */
+    @SuppressWarnings("unchecked")
+    private View inflateView(int type, ViewGroup parent) {
+        View view;
+        if(type < ViewTypeRegistry.FIRST_CUSTOM_TYPE)
+            view = inflateViewFor(type, parent);
+        else {
+            Object binder = binders[type - ViewTypeRegistry.FIRST_CUSTOM_TYPE];
+            if(viewTypeRegistry.isSectionType(type))
+                view = ((GroupViewBinder<K>) binder).inflateView(parent);
+            else
+                view = ((ChildViewBinder<V>) binder).inflateView(parent);
+        }
+
+        MetricsListener metricsListener = this.metricsListener;
+        if(metricsListener != null)
+            metricsListener.onViewInflated(type);
+
+        return view;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bindView(int type, int position, View view) {
+        if(type >= ViewTypeRegistry.FIRST_CUSTOM_TYPE) {
+            Object binder = binders[type - ViewTypeRegistry.FIRST_CUSTOM_TYPE];
+
+            if(viewTypeRegistry.isSectionType(type))
+                ((GroupViewBinder<K>) binder).bindView(index.getSectionKey(index.getSectionForPosition(position)), view, position == 0);
+            else
+                ((ChildViewBinder<V>) binder).bindView(index.getChild(position), view, index.getPositionInSection(position), index.getGlobalChildPosition(position));
+        }
+        else if(type == ITEM_VIEW_TYPE.SECTION.ordinal()) {
+            int section = index.getSectionForPosition(position);
+            bindGroupView(index.getSectionKey(section), section, view, position == 0);
+        }
+        else if(type == ITEM_VIEW_TYPE.CHILD.ordinal())
+            bindChildView(index.getChild(position), view, index.getPositionInSection(position), index.getGlobalChildPosition(position));
+        else
+            bindChildDividerView();
+    }
+
     /**
      * @param viewTypeOrdinal The ordinal of the view's {@link ITEM_VIEW_TYPE}
      * @param parent
@@ -162,6 +322,15 @@ public abstract class SectionAdapter<K, V> extends BaseAdapter {
      */
     protected abstract void bindGroupView(K key, View groupView, boolean isFirstGroup);
 
+    /**
+     * Binds the given key's data to the given groupView, e.g. along with the aggregates of {@link #getSectionAggregate}.
+     * Calls {@link #bindGroupView(Object, View, boolean)} by default.
+     * @param section The index of the section.
+     */
+    protected void bindGroupView(K key, int section, View groupView, boolean isFirstGroup) {
+        bindGroupView(key, groupView, isFirstGroup);
+    }
+
     /**
      * Binds the given values's data to the given childView.
      * @param childView The view to bind the child's values to.
@@ -176,50 +345,310 @@ public abstract class SectionAdapter<K, V> extends BaseAdapter {
     protected void bindChildDividerView(){
     }
 
-    //region Collection Helper methods
     /**
-     * @return An array of objects where each group is represented by a {@link K} object
-     *         each child is represented by a {@link V} object and each childDivider is represented by null.
-     *         ChildDividers are only added if the flag was set accordingly.
+     * Loads and flattens the data on the loadExecutor and computes the aggregates there. The new index is swapped in on the main thread.
      */
-    private Object[] getAdaptedGroupedData(LinkedHashMap<K, List<V>> groupedData){
-        globalChildPos = 0;
+    private void loadDataAsync() {
+        final List<SectionAggregator<V>> aggregators = new ArrayList<>(this.aggregators);
+        loader.load(loadExecutor, groupedDataProvider, useCustomChildDividers, viewTypeRegistry, new SectionDataLoader.Listener<K, V, Void>() {
+            @Override
+            public Void onIndexBuilt(SectionIndex<K, V> newIndex, CancellationToken token) {
+                newIndex.setAggregators(aggregators);
+                return null;
+            }
+
+            @Override
+            public void onLoadFinished(SectionIndex<K, V> newIndex, Void result) {
+                setIndex(newIndex);
+                SectionAdapter.super.notifyDataSetChanged();
+            }
+        });
+    }
 
-        List<Object> adaptedGroupedData = new LinkedList<>();
+    /**
+     * Displays previously persisted data right away, e.g. the result of {@link SectionIndexSnapshot#read} on a cold start.
+     * The load which is running in the background keeps running and replaces the snapshot once it has finished.
+     * @return False if no load is running, then the fresh data is displayed already and the snapshot is ignored.
+     */
+    public boolean showSnapshot(LinkedHashMap<K, List<V>> snapshot) {
+        if(snapshot == null)
+            throw new IllegalArgumentException("The parameter 'snapshot' can not be null!");
+        if(!loader.isLoading())
+            return false;
 
-        Object[] keys = groupedData.keySet().toArray();
-        K key;
-        for (int i = keys.length - 1; i >= 0; i--) {
-            key = (K) keys[i];
+        setIndex(new SectionIndex<>(snapshot, useCustomChildDividers, viewTypeRegistry));
+        super.notifyDataSetChanged();
+        return true;
+    }
 
-            adaptedGroupedData.add(key);
-            adaptedGroupedData.addAll(getAdaptedValues(groupedData.get(key)));
-        }
+    /**
+     * Loads the data of the current groupedDataProvider and flattens it into a new {@link SectionIndex}.
+     */
+    private void loadData() {
+        setIndex(loader.loadSynchronously(groupedDataProvider, useCustomChildDividers, viewTypeRegistry));
+    }
+
+    /**
+     * Swaps in the new index, the sections which are collapsed in the old one stay collapsed.
+     * The aggregates are computed here unless the load has computed them already.
+     */
+    private void setIndex(SectionIndex<K, V> index) {
+        if(this.index != null && this.index.getCollapsedSectionCount() > 0)
+            index.collapseSections(this.index.getCollapsedSectionKeys());
+
+        if(index.getAggregatorCount() != aggregators.size())
+            index.setAggregators(aggregators);
+
+        selection.onIndexReplaced(index, stableIds == null ? null : stableIds.getValueIdExtractor());
+        this.index = index;
+    }
+
+    /**
+     * Refreshes the views of the given children, e.g. once a page of a {@link PagedGroupedDataProvider} has been loaded.
+     * A ListView can not rebind single rows, so all visible rows are rebound.
+     */
+    public void notifyGlobalChildRangeChanged(int globalChildPosition, int count) {
+        super.notifyDataSetChanged();
+    }
 
-        return adaptedGroupedData.toArray(new Object[adaptedGroupedData.size()]);
+    //region Modifications
+    /**
+     * Inserts a child without reloading the data and refreshes the views.
+     */
+    public void insertChild(int section, int positionInSection, V value) {
+        index.insertChild(section, positionInSection, value, null);
+        selection.onChildInserted(index.getGlobalChildPositionForSection(section) + positionInSection);
+        super.notifyDataSetChanged();
     }
 
     /**
-     * Adds a null value after every entry, except the first one.
+     * Removes a child without reloading the data and refreshes the views.
+     * @return The removed child.
      */
-    private List<Object> getAdaptedValues(List<V> values) {
-        List<Object> objects = new LinkedList<>();
+    public V removeChild(int section, int positionInSection) {
+        V value = index.removeChild(section, positionInSection, null);
+        selection.onChildRemoved(section, index.getGlobalChildPositionForSection(section) + positionInSection);
+        super.notifyDataSetChanged();
+
+        return value;
+    }
 
-        int i = 0;
-        for (V value : values) {
-            if(useCustomChildDividers && i > 0)
-                objects.add(null);
+    /**
+     * Moves a child inside a section or into another section without reloading the data and refreshes the views.
+     */
+    public void moveChild(int fromSection, int fromPosition, int toSection, int toPosition) {
+        int fromGlobalChildPosition = index.getGlobalChildPositionForSection(fromSection) + fromPosition;
+        index.moveChild(fromSection, fromPosition, toSection, toPosition, null);
+        selection.onChildMoved(fromSection, fromGlobalChildPosition, index.getGlobalChildPositionForSection(toSection) + toPosition);
+        super.notifyDataSetChanged();
+    }
 
-            objects.add(new PositionWrapper(value, globalChildPos));
-            i++;
-            globalChildPos++;
-        }
+    /**
+     * Replaces a child without reloading the data and refreshes the views.
+     * @return The replaced child.
+     */
+    public V updateChild(int section, int positionInSection, V value) {
+        V oldValue = index.setChild(section, positionInSection, value, null, null);
+        super.notifyDataSetChanged();
+
+        return oldValue;
+    }
+
+    /**
+     * Notifies that a child has been changed in place, e.g. its presence state, recomputes the aggregates of its section
+     * and refreshes the views. Use it instead of {@link #updateChild} with the same instance, which can not re-aggregate the child.
+     */
+    public void notifyChildChanged(int section, int positionInSection) {
+        index.refreshAggregates(section);
+        super.notifyDataSetChanged();
+    }
+
+    /**
+     * Inserts a section without reloading the data and refreshes the views.
+     */
+    public void insertSection(int section, K key, List<V> values) {
+        index.insertSection(section, key, values, null);
+        selection.onSectionInserted(section, index.getGlobalChildPositionForSection(section), values.size());
+        super.notifyDataSetChanged();
+    }
+
+    /**
+     * Removes a section with all its children without reloading the data and refreshes the views.
+     */
+    public void removeSection(int section) {
+        int globalChildPosition = index.getGlobalChildPositionForSection(section);
+        int childCount = index.getChildCount(section);
+        index.removeSection(section, null);
+        selection.onSectionRemoved(section, globalChildPosition, childCount);
+        super.notifyDataSetChanged();
+    }
+
+    /**
+     * Hides the children of the given section and refreshes the views.
+     */
+    public void collapseSection(int section) {
+        index.collapseSection(section, null);
+        super.notifyDataSetChanged();
+    }
+
+    /**
+     * Shows the children of a collapsed section again and refreshes the views.
+     */
+    public void expandSection(int section) {
+        index.expandSection(section, null);
+        super.notifyDataSetChanged();
+    }
+
+    public boolean isSectionCollapsed(int section) {
+        return index.isSectionCollapsed(section);
+    }
+    //endregion
+
+    //region Aggregates
+    /**
+     * Registers an aggregate of every section, e.g. the number of unread messages shown inside the header.
+     * It is computed along with every load and updated by the modification methods of this adapter.
+     * Data which is loaded lazily, i.e. a {@link PagedGroupedDataProvider} or a snapshot of {@link #showSnapshot}, is not aggregated,
+     * its sections report the aggregate of an empty section until the next regular load.
+     * @return The id to read the aggregate via {@link #getSectionAggregate}.
+     */
+    public int registerAggregator(SectionAggregator<V> aggregator) {
+        if(aggregator == null)
+            throw new IllegalArgumentException("The parameter 'aggregator' can not be null!");
+
+        aggregators.add(aggregator);
+        index.setAggregators(aggregators);
+        super.notifyDataSetChanged();
+        return aggregators.size() - 1;
+    }
+
+    /**
+     * @param aggregator The id returned by {@link #registerAggregator}.
+     * @return The aggregate of the given section in O(1), e.g. inside {@link #bindGroupView(Object, int, View, boolean)}.
+     */
+    public long getSectionAggregate(int section, int aggregator) {
+        return index.getAggregate(section, aggregator);
+    }
+    //endregion
+
+    //region View types
+    /**
+     * Registers an additional section view type, e.g. for pinned sections. Sections whose key matches are inflated and bound
+     * by the given binder instead of {@code inflateViewFor} and {@code bindGroupView}.
+     * Has to be called before the adapter is set, since a ListView does not support changing the view type count.
+     * @return The new view type.
+     */
+    public int registerGroupViewType(ViewTypeRegistry.Matcher<K> matcher, GroupViewBinder<K> binder) {
+        if(binder == null)
+            throw new IllegalArgumentException("The parameter 'binder' can not be null!");
+
+        return onViewTypeRegistered(viewTypeRegistry.registerSectionType(matcher), binder);
+    }
 
-        return objects;
+    /**
+     * Registers an additional child view type, e.g. for pinned contacts. Children which match are inflated and bound
+     * by the given binder instead of {@code inflateViewFor} and {@code bindChildView}.
+     * Has to be called before the adapter is set, since a ListView does not support changing the view type count.
+     * @return The new view type.
+     */
+    public int registerChildViewType(ViewTypeRegistry.Matcher<V> matcher, ChildViewBinder<V> binder) {
+        if(binder == null)
+            throw new IllegalArgumentException("The parameter 'binder' can not be null!");
+
+        return onViewTypeRegistered(viewTypeRegistry.registerChildType(matcher), binder);
+    }
+
+    private int onViewTypeRegistered(int type, Object binder) {
+        binders = Arrays.copyOf(binders, type - ViewTypeRegistry.FIRST_CUSTOM_TYPE + 1);
+        binders[type - ViewTypeRegistry.FIRST_CUSTOM_TYPE] = binder;
+
+        index.setViewTypeRegistry(viewTypeRegistry);
+        super.notifyDataSetChanged();
+        return type;
+    }
+    //endregion
+
+    //region Warm-up
+    /**
+     * Inflates the given number of views of a view type on the executor, e.g. while the data loads.
+     * {@link #getView} hands them out instead of inflating new views, so the first fling does not have to inflate them.
+     * The layouts are inflated off the main thread, so they must not require a Looper while inflating.
+     * <p>
+     * The views hold the Context they are inflated with, which has to be the themed Activity context of the ListView
+     * (e.g. {@code LayoutInflater.from(parent.getContext())} inside {@code inflateViewFor}), never the application context.
+     * At most the given number of views is kept per view type. The views are unbound, so they survive refreshes of the data.
+     * Views which have not been used are dropped by {@link #clearWarmViews()} and once the ListView detaches,
+     * so they do not outlive the Activity.
+     * @param parent The ListView which displays this adapter.
+     * @param executor A background executor.
+     */
+    public void warmUpViews(final ViewGroup parent, Executor executor, final int viewType, final int count) {
+        if(parent == null)
+            throw new IllegalArgumentException("The parameter 'parent' can not be null!");
+        if(executor == null)
+            throw new IllegalArgumentException("The parameter 'executor' can not be null!");
+
+        final int generation = warmUpGeneration;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<View> views = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    views.add(inflateView(viewType, parent));
+
+                mainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(generation != warmUpGeneration)
+                            return;
+
+                        ArrayDeque<View> stash = warmViews.get(viewType);
+                        if(stash == null) {
+                            stash = new ArrayDeque<>(count);
+                            warmViews.put(viewType, stash);
+                        }
+                        for (int i = 0; i < views.size() && stash.size() < count; i++)
+                            stash.add(views.get(i));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return A view which has been inflated by {@link #warmUpViews} or null.
+     */
+    private View takeWarmView(int type) {
+        ArrayDeque<View> stash = warmViews.get(type);
+        return stash == null ? null : stash.poll();
+    }
+
+    /**
+     * Drops all views which have been inflated by {@link #warmUpViews} and not been used yet, including those of running warm-ups.
+     */
+    public void clearWarmViews() {
+        warmViews.clear();
+        warmUpGeneration++;
+    }
+
+    /**
+     * The ListView unregisters its observer once it detaches from its window respectively once the adapter is replaced.
+     */
+    @Override
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+        super.unregisterDataSetObserver(observer);
+        clearWarmViews();
     }
     //endregion
 
     //region Getter and Setter
+    /**
+     * @return The selected children, which follow the modifications and reloads of this adapter.
+     */
+    public SectionSelection<K, V> getSelection() {
+        return selection;
+    }
+
     protected Context getContext(){
         return this.context;
     }
@@ -228,8 +657,53 @@ public abstract class SectionAdapter<K, V> extends BaseAdapter {
         return groupedDataProvider;
     }
 
+    /**
+     * @return The displayed data, including any modifications.
+     */
     public LinkedHashMap<K, List<V>> getGroupedData() {
-        return groupedData;
+        return index.getGroupedData();
+    }
+
+    /**
+     * Enables stable ids, which lets the ListView keep checked states across refreshes.
+     * Section rows use the id of their key, child rows the id of their value and divider rows the id of the following child,
+     * each tagged with the row type in the top two bits. So keys and values only have to be unique in their lower 62 bits among themselves.
+     * Both extractors are required, stable ids are disabled if either of them is null.
+     * @param keyIdExtractor Determines the ids of the section keys or null to disable stable ids.
+     * @param valueIdExtractor Determines the ids of the values or null to disable stable ids.
+     */
+    public void setIdExtractors(IdExtractor<K> keyIdExtractor, IdExtractor<V> valueIdExtractor) {
+        if(keyIdExtractor == null || valueIdExtractor == null)
+            stableIds = null;
+        else
+            stableIds = new StableIdTable<>(keyIdExtractor, valueIdExtractor);
+    }
+
+    /**
+     * @param id A row id as returned by {@link #getItemId}, which is the value id for children with non negative value ids.
+     * @return The adapter position of the row with the given id or -1 if there is none (respectively no {@link IdExtractor}s have been set).
+     */
+    public int getPositionForId(long id) {
+        if(stableIds == null)
+            return -1;
+
+        return stableIds.getPosition(index, id);
+    }
+
+    /**
+     * @param metricsListener Receives load, flatten, inflate and bind timings or null to stop measuring.
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+        loader.setMetricsListener(metricsListener);
+    }
+
+    protected MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    protected SectionIndex<K, V> getSectionIndex() {
+        return index;
     }
     //endregion
 }
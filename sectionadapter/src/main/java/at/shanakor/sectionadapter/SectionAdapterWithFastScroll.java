@@ -3,22 +3,29 @@ package at.shanakor.sectionadapter;
 import android.content.Context;
 import android.widget.SectionIndexer;
 
-import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 /**
  * This class serves as the base class for any sectioned adapter using FastScroll.
  * On creation it automatically loads the needed data from the given groupedDataProvider.
  * It can be refreshed via {@link #notifyDataSetChanged} respectively via {@link #notifyDataSetChanged(GroupedDataProvider)} if a new {@link GroupedDataProvider} is wanted.
+ * The sections and their offsets are taken from the {@link SectionIndex} which is built once per data load,
+ * so every lookup is a binary search over the section offsets (including childDivider rows).
  *
  * @see SectionAdapter
  */
 public abstract class SectionAdapterWithFastScroll<K, V> extends SectionAdapter<K,V> implements SectionIndexer {
+    private int fastScrollLevel = -1;
+    /** The sections of the fast scroll level and their keys, valid for the given index and modification count. */
+    private SectionIndex<K, V> levelIndex = null;
+    private int levelModificationCount = -1;
+    private int[] levelSections = null;
+    private Object[] levelKeys = null;
 
     /**
      * @param context The context of the enclosing activity.
-     * @param keyType The class of the key type. Unfortunately there is no other way using java generics.
+     * @param keyType The class of the key type. (Only validated, the row types are tracked by the {@link SectionIndex}).
      * @param groupedDataProvider A provider which will be used to get the data to be loaded.
      * @param useCustomChildDividers Whether or not the adapter should insert a custom divider layout between every value.
      *                               If false {@code bindChildView()} is not going to be called.
@@ -27,45 +34,130 @@ public abstract class SectionAdapterWithFastScroll<K, V> extends SectionAdapter<
         super(context, keyType, groupedDataProvider, useCustomChildDividers);
     }
 
+    /**
+     * @param context The context of the enclosing activity.
+     * @param keyType The class of the key type. (Only validated, the row types are tracked by the {@link SectionIndex}).
+     * @param groupedDataProvider A provider which will be used to get the data to be loaded.
+     * @param useCustomChildDividers Whether or not the adapter should insert a custom divider layout between every value.
+     *                               If false {@code bindChildView()} is not going to be called.
+     * @param loadExecutor The executor which loads and flattens the data off the main thread or null to load synchronously.
+     */
+    public SectionAdapterWithFastScroll(Context context, Class<K> keyType, GroupedDataProvider<K, V> groupedDataProvider, boolean useCustomChildDividers, Executor loadExecutor) {
+        super(context, keyType, groupedDataProvider, useCustomChildDividers, loadExecutor);
+    }
+
+    /**
+     * Lets fast scroll jump between the sections of a single level of hierarchically grouped data (see {@link SectionPath}).
+     * @param level The level whose sections are shown by fast scroll or -1 to show all sections.
+     */
+    public void setFastScrollLevel(int level) {
+        fastScrollLevel = level;
+        levelIndex = null;
+    }
+
     //region SectionIndexer
+    /**
+     * @return The cached keys of all sections (of the fast scroll level). Do not modify the returned array.
+     */
     @Override
     public Object[] getSections() {
-        return groupedData.keySet().toArray(new Object[groupedData.keySet().size()]);
+        onSectionIndexerCalled(MetricsListener.INDEXER_GET_SECTIONS);
+
+        if(fastScrollLevel < 0)
+            return getSectionIndex().getSections();
+
+        updateLevelSections();
+        return levelKeys;
     }
 
     @Override
     public int getPositionForSection(int sectionIndex) {
-        Collection<List<V>> groupedValues = groupedData.values();
-
-        int sectionCount = 0;
-        int pos = 0;
-        for (List<V> values : groupedValues) {
-            if(sectionCount >= sectionIndex)
-                break;
+        onSectionIndexerCalled(MetricsListener.INDEXER_GET_POSITION_FOR_SECTION);
 
-            pos += values.size() + 1;
-            sectionCount++;
+        SectionIndex<K, V> index = getSectionIndex();
+        int sectionCount = index.getSectionCount();
+        if(fastScrollLevel >= 0) {
+            updateLevelSections();
+            sectionCount = levelSections.length;
         }
 
-        return pos;
+        if(sectionCount == 0)
+            return 0;
+
+        if(sectionIndex < 0)
+            sectionIndex = 0;
+        else if(sectionIndex >= sectionCount)
+            sectionIndex = sectionCount - 1;
+
+        return index.getPositionForSection(fastScrollLevel < 0 ? sectionIndex : levelSections[sectionIndex]);
     }
 
     @Override
     public int getSectionForPosition(int position) {
-        Collection<List<V>> groupedValues = groupedData.values();
+        onSectionIndexerCalled(MetricsListener.INDEXER_GET_SECTION_FOR_POSITION);
+
+        SectionIndex<K, V> index = getSectionIndex();
+        if(index.getRowCount() == 0)
+            return 0;
 
-        int sectionIndex = 0;
-        int childSum = 0;
-        for (List<V> values : groupedValues) {
-            childSum += values.size()+1;
+        if(position < 0)
+            position = 0;
+        else if(position >= index.getRowCount())
+            position = index.getRowCount() - 1;
 
-            if(position <= childSum)
-                return sectionIndex;
+        int section = index.getSectionForPosition(position);
+        if(fastScrollLevel < 0)
+            return section;
+
+        updateLevelSections();
+        return Math.max(0, upperBound(levelSections, section) - 1);
+    }
 
-            sectionIndex++;
+    private void onSectionIndexerCalled(int method) {
+        MetricsListener metricsListener = getMetricsListener();
+        if(metricsListener != null)
+            metricsListener.onSectionIndexerCalled(method);
+    }
+
+    /**
+     * Collects the sections of the fast scroll level once per data load respectively modification.
+     */
+    private void updateLevelSections() {
+        SectionIndex<K, V> index = getSectionIndex();
+        if(levelIndex == index && levelModificationCount == index.getModificationCount())
+            return;
+
+        int[] sections = new int[index.getSectionCount()];
+        int count = 0;
+        for (int i = 0; i < sections.length; i++) {
+            if(index.getSectionDepth(i) == fastScrollLevel)
+                sections[count++] = i;
+        }
+
+        levelSections = Arrays.copyOf(sections, count);
+        levelKeys = new Object[count];
+        for (int i = 0; i < count; i++)
+            levelKeys[i] = index.getSectionKey(levelSections[i]);
+
+        levelIndex = index;
+        levelModificationCount = index.getModificationCount();
+    }
+
+    /**
+     * @return The number of sections which are less or equal to the given one.
+     */
+    private static int upperBound(int[] sections, int section) {
+        int low = 0;
+        int high = sections.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if(sections[mid] <= section)
+                low = mid + 1;
+            else
+                high = mid;
         }
 
-        return 0;
+        return low;
     }
     //endregion
 }
@@ -0,0 +1,138 @@
+package at.shanakor.sectionadapter;
+
+import java.util.List;
+
+/**
+ * A number which is aggregated over the children of every section, e.g. the unread messages or the total amount
+ * shown inside a header. Register it via {@code registerAggregator} of an adapter and read it via {@code getSectionAggregate},
+ * which takes O(1) instead of iterating the section on every header bind.
+ * <p>
+ * The aggregates are computed once per load and updated incrementally by the modifications of the {@link SectionIndex}.
+ * Children which are changed in place are re-aggregated by {@code notifyChildChanged} of both adapters, which rescans their section.
+ * Counts and sums are updated in O(1). Removing the current minimum respectively maximum of a section rescans the section.
+ * The aggregates include the children of collapsed sections.
+ */
+public final class SectionAggregator<V> {
+    /**
+     * Determines whether a child is counted.
+     */
+    public interface Matcher<V> {
+        boolean matches(V value);
+    }
+
+    /**
+     * Determines the number of a child which is aggregated, e.g. an amount in cents.
+     */
+    public interface ValueExtractor<V> {
+        long getValue(V value);
+    }
+
+    private static final int KIND_COUNT = 0;
+    private static final int KIND_SUM = 1;
+    private static final int KIND_MIN = 2;
+    private static final int KIND_MAX = 3;
+
+    private final int kind;
+    private final Matcher<V> matcher;
+    private final ValueExtractor<V> valueExtractor;
+
+    private SectionAggregator(int kind, Matcher<V> matcher, ValueExtractor<V> valueExtractor) {
+        this.kind = kind;
+        this.matcher = matcher;
+        this.valueExtractor = valueExtractor;
+    }
+
+    /**
+     * @return An aggregator which counts the matching children of every section.
+     */
+    public static <V> SectionAggregator<V> count(Matcher<V> matcher) {
+        if(matcher == null)
+            throw new IllegalArgumentException("The parameter 'matcher' can not be null!");
+
+        return new SectionAggregator<>(KIND_COUNT, matcher, null);
+    }
+
+    /**
+     * @return An aggregator which sums up the values of the children of every section.
+     */
+    public static <V> SectionAggregator<V> sum(ValueExtractor<V> valueExtractor) {
+        return new SectionAggregator<>(KIND_SUM, null, checkValueExtractor(valueExtractor));
+    }
+
+    /**
+     * @return An aggregator which determines the smallest value of every section, {@link Long#MAX_VALUE} for empty sections.
+     */
+    public static <V> SectionAggregator<V> min(ValueExtractor<V> valueExtractor) {
+        return new SectionAggregator<>(KIND_MIN, null, checkValueExtractor(valueExtractor));
+    }
+
+    /**
+     * @return An aggregator which determines the largest value of every section, {@link Long#MIN_VALUE} for empty sections.
+     */
+    public static <V> SectionAggregator<V> max(ValueExtractor<V> valueExtractor) {
+        return new SectionAggregator<>(KIND_MAX, null, checkValueExtractor(valueExtractor));
+    }
+
+    private static <V> ValueExtractor<V> checkValueExtractor(ValueExtractor<V> valueExtractor) {
+        if(valueExtractor == null)
+            throw new IllegalArgumentException("The parameter 'valueExtractor' can not be null!");
+
+        return valueExtractor;
+    }
+
+    /**
+     * @return The aggregate of an empty section.
+     */
+    long initial() {
+        switch (kind) {
+            case KIND_MIN:
+                return Long.MAX_VALUE;
+            case KIND_MAX:
+                return Long.MIN_VALUE;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return The aggregate including the given child.
+     */
+    long add(long aggregate, V value) {
+        switch (kind) {
+            case KIND_COUNT:
+                return matcher.matches(value) ? aggregate + 1 : aggregate;
+            case KIND_SUM:
+                return aggregate + valueExtractor.getValue(value);
+            case KIND_MIN:
+                return Math.min(aggregate, valueExtractor.getValue(value));
+            default:
+                return Math.max(aggregate, valueExtractor.getValue(value));
+        }
+    }
+
+    /**
+     * @param remainingValues The children of the section after the removal, which are rescanned if the extreme has been removed.
+     * @return The aggregate without the given child.
+     */
+    long remove(long aggregate, V value, List<V> remainingValues) {
+        switch (kind) {
+            case KIND_COUNT:
+                return matcher.matches(value) ? aggregate - 1 : aggregate;
+            case KIND_SUM:
+                return aggregate - valueExtractor.getValue(value);
+            default:
+                return valueExtractor.getValue(value) == aggregate ? aggregate(remainingValues) : aggregate;
+        }
+    }
+
+    /**
+     * @return The aggregate of the given children.
+     */
+    long aggregate(List<V> values) {
+        long aggregate = initial();
+        for (V value : values)
+            aggregate = add(aggregate, value);
+
+        return aggregate;
+    }
+}
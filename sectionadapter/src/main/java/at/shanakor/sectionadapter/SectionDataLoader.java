@@ -0,0 +1,170 @@
+package at.shanakor.sectionadapter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the data of a {@link GroupedDataProvider} and flattens it into a {@link SectionIndex} on a background executor.
+ * The finished index is handed to the main executor, where it can be swapped in with a single assignment.
+ * Starting a new load cancels the load which is still running, so only the newest result is ever delivered.
+ */
+public class SectionDataLoader<K, V> {
+    /**
+     * Receives the results of a load.
+     * @param <R> The type of any additional result which is calculated in the background.
+     */
+    public interface Listener<K, V, R> {
+        /**
+         * Is called on the load executor once the new index has been built.
+         * @return Any additional result (e.g. a diff) which is handed to {@link #onLoadFinished}.
+         */
+        R onIndexBuilt(SectionIndex<K, V> newIndex, CancellationToken token);
+
+        /**
+         * Is called on the main executor unless the load has been cancelled in the meantime.
+         */
+        void onLoadFinished(SectionIndex<K, V> newIndex, R result);
+    }
+
+    private final Executor mainExecutor;
+    private CancellationToken currentToken = null;
+    private volatile MetricsListener metricsListener = null;
+
+    /**
+     * @param mainExecutor The executor which delivers the results, usually the main thread.
+     */
+    public SectionDataLoader(Executor mainExecutor) {
+        if(mainExecutor == null)
+            throw new IllegalArgumentException("The parameter 'mainExecutor' can not be null!");
+
+        this.mainExecutor = mainExecutor;
+    }
+
+    /**
+     * Cancels the running load and starts a new one. Has to be called from the main executor.
+     * @param loadExecutor The executor which loads the data and builds the index.
+     * @param groupedDataProvider The provider to load the data from. A {@link CancellableGroupedDataProvider} receives the load's token,
+     *                            the primitive data of a {@link PrimitiveGroupedDataProvider} is flattened directly.
+     * @param useCustomChildDividers Whether or not the index should contain childDivider rows.
+     * @param listener Receives the results.
+     */
+    public <R> void load(Executor loadExecutor, GroupedDataProvider<K, V> groupedDataProvider, boolean useCustomChildDividers, Listener<K, V, R> listener) {
+        load(loadExecutor, groupedDataProvider, useCustomChildDividers, null, listener);
+    }
+
+    /**
+     * Cancels the running load and starts a new one. Has to be called from the main executor.
+     * @param loadExecutor The executor which loads the data and builds the index.
+     * @param groupedDataProvider The provider to load the data from. A {@link CancellableGroupedDataProvider} receives the load's token,
+     *                            the primitive data of a {@link PrimitiveGroupedDataProvider} is flattened directly.
+     * @param useCustomChildDividers Whether or not the index should contain childDivider rows.
+     * @param viewTypeRegistry Additional view types which are resolved while building the index or null.
+     * @param listener Receives the results.
+     */
+    public <R> void load(Executor loadExecutor, final GroupedDataProvider<K, V> groupedDataProvider, final boolean useCustomChildDividers,
+                         final ViewTypeRegistry<K, V> viewTypeRegistry, final Listener<K, V, R> listener) {
+        if(loadExecutor == null)
+            throw new IllegalArgumentException("The parameter 'loadExecutor' can not be null!");
+        if(groupedDataProvider == null)
+            throw new IllegalArgumentException("The parameter 'groupedDataProvider' can not be null!");
+        if(listener == null)
+            throw new IllegalArgumentException("The parameter 'listener' can not be null!");
+
+        cancel();
+        final CancellationToken token = new CancellationToken();
+        currentToken = token;
+
+        loadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if(token.isCancelled())
+                    return;
+
+                final SectionIndex<K, V> newIndex = buildIndex(groupedDataProvider, token, useCustomChildDividers, viewTypeRegistry);
+                if(newIndex == null || token.isCancelled())
+                    return;
+
+                final R result = listener.onIndexBuilt(newIndex, token);
+                if(token.isCancelled())
+                    return;
+
+                mainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(token.isCancelled())
+                            return;
+
+                        currentToken = null;
+                        listener.onLoadFinished(newIndex, result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Loads the data and builds the index on the calling thread, e.g. if the adapter has no load executor.
+     * @param viewTypeRegistry Additional view types which are resolved while building the index or null.
+     */
+    public SectionIndex<K, V> loadSynchronously(GroupedDataProvider<K, V> groupedDataProvider, boolean useCustomChildDividers, ViewTypeRegistry<K, V> viewTypeRegistry) {
+        return buildIndex(groupedDataProvider, new CancellationToken(), useCustomChildDividers, viewTypeRegistry);
+    }
+
+    /**
+     * @return The new index or null if the load has been cancelled.
+     */
+    private SectionIndex<K, V> buildIndex(GroupedDataProvider<K, V> groupedDataProvider, CancellationToken token, boolean useCustomChildDividers,
+                                          ViewTypeRegistry<K, V> viewTypeRegistry) {
+        MetricsListener metricsListener = this.metricsListener;
+        long start = metricsListener == null ? 0 : System.nanoTime();
+
+        LinkedHashMap<K, List<V>> groupedData = null;
+        PrimitiveGroupedData<K, V> primitiveData = null;
+        if(groupedDataProvider instanceof PrimitiveGroupedDataProvider)
+            primitiveData = ((PrimitiveGroupedDataProvider<K, V>) groupedDataProvider).getPrimitiveData();
+        else if(groupedDataProvider instanceof CancellableGroupedDataProvider)
+            groupedData = ((CancellableGroupedDataProvider<K, V>) groupedDataProvider).getData(token);
+        else
+            groupedData = groupedDataProvider.getData();
+        if(token.isCancelled())
+            return null;
+
+        long loaded = 0;
+        if(metricsListener != null) {
+            loaded = System.nanoTime();
+            metricsListener.onDataLoaded(loaded - start);
+        }
+
+        // Primitive keys stay unboxed until the adapter requests them.
+        SectionIndex<K, V> index = primitiveData != null
+                ? new SectionIndex<>(primitiveData, useCustomChildDividers, viewTypeRegistry)
+                : new SectionIndex<>(groupedData, useCustomChildDividers, viewTypeRegistry);
+
+        if(metricsListener != null)
+            metricsListener.onIndexBuilt(System.nanoTime() - loaded, index.getRowCount());
+
+        return index;
+    }
+
+    /**
+     * @param metricsListener Receives the load and flatten timings or null.
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Cancels the running load, if any. Has to be called from the main executor.
+     */
+    public void cancel() {
+        if(currentToken != null) {
+            currentToken.cancel();
+            currentToken = null;
+        }
+    }
+
+    public boolean isLoading() {
+        return currentToken != null;
+    }
+}
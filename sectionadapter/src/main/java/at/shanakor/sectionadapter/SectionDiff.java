@@ -0,0 +1,316 @@
+package at.shanakor.sectionadapter;
+
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The difference between two {@link SectionIndex}es, calculated section by section.
+ * First the sections are matched by their keys (removed, moved and inserted sections), afterwards the children
+ * of every section which is contained in both indices are diffed using {@link DiffUtil}.
+ * <p>
+ * {@link #calculate} does not touch any views and is meant to be called on a background thread. The old data is passed
+ * as a map (see {@link SectionIndex#getGroupedData()}), so the displayed index is never read from another thread.
+ * {@link #dispatchUpdatesTo(RecyclerView.Adapter)} has to be called on the main thread right after the adapter
+ * switched to the new index. It emits the exact row based notifications including section headers and childDividers.
+ */
+public final class SectionDiff<K, V> {
+    private final int[] oldChildCounts;
+    private final SectionIndex<K, V> newIndex;
+
+    /** The old section of every new section or -1 if the section has been inserted. */
+    private final int[] oldSections;
+    /** Whether a new section keeps its place, all other retained sections are moved. */
+    private final boolean[] stays;
+    /** The diff of the children of every retained section or null if they did not change. */
+    private final DiffUtil.DiffResult[] childDiffs;
+
+    private SectionDiff(int[] oldChildCounts, SectionIndex<K, V> newIndex, int[] oldSections, boolean[] stays, DiffUtil.DiffResult[] childDiffs) {
+        this.oldChildCounts = oldChildCounts;
+        this.newIndex = newIndex;
+        this.oldSections = oldSections;
+        this.stays = stays;
+        this.childDiffs = childDiffs;
+    }
+
+    /**
+     * Calculates the difference between both indices. Has to be called on the thread which owns the old index.
+     * @param oldIndex The index which is currently displayed.
+     * @param newIndex The index which is going to be displayed.
+     * @param callback Compares the children of sections with equal keys.
+     */
+    public static <K, V> SectionDiff<K, V> calculate(SectionIndex<K, V> oldIndex, SectionIndex<K, V> newIndex, SectionDiffCallback<V> callback) {
+        if(oldIndex == null)
+            throw new IllegalArgumentException("The parameter 'oldIndex' can not be null!");
+        if(oldIndex.usesCustomChildDividers() != newIndex.usesCustomChildDividers())
+            throw new IllegalArgumentException("Both indices have to use the same childDivider setting!");
+        if(oldIndex.getCollapsedSectionCount() > 0)
+            throw new IllegalArgumentException("An index with collapsed sections can not be diffed!");
+
+        return calculate(oldIndex.getGroupedData(), newIndex, callback);
+    }
+
+    /**
+     * Calculates the difference between the old data and the new index.
+     * @param oldGroupedData The data which is currently displayed.
+     * @param newIndex The index which is going to be displayed.
+     * @param callback Compares the children of sections with equal keys.
+     */
+    public static <K, V> SectionDiff<K, V> calculate(LinkedHashMap<K, List<V>> oldGroupedData, SectionIndex<K, V> newIndex, SectionDiffCallback<V> callback) {
+        if(oldGroupedData == null)
+            throw new IllegalArgumentException("The parameter 'oldGroupedData' can not be null!");
+        if(newIndex == null)
+            throw new IllegalArgumentException("The parameter 'newIndex' can not be null!");
+        if(callback == null)
+            throw new IllegalArgumentException("The parameter 'callback' can not be null!");
+        if(newIndex.getCollapsedSectionCount() > 0)
+            throw new IllegalArgumentException("An index with collapsed sections can not be diffed!");
+
+        int oldSectionCount = oldGroupedData.size();
+        int[] oldChildCounts = new int[oldSectionCount];
+        List<List<V>> oldValues = new ArrayList<>(oldSectionCount);
+        HashMap<Object, Integer> oldSectionByKey = new HashMap<>(oldSectionCount * 4 / 3 + 1);
+        for (Map.Entry<K, List<V>> entry : oldGroupedData.entrySet()) {
+            oldChildCounts[oldValues.size()] = entry.getValue().size();
+            oldSectionByKey.put(entry.getKey(), oldValues.size());
+            oldValues.add(entry.getValue());
+        }
+
+        int newSectionCount = newIndex.getSectionCount();
+        int[] oldSections = new int[newSectionCount];
+        DiffUtil.DiffResult[] childDiffs = new DiffUtil.DiffResult[newSectionCount];
+        for (int i = 0; i < newSectionCount; i++) {
+            Integer oldSection = oldSectionByKey.get(newIndex.getSectionKey(i));
+            oldSections[i] = oldSection == null ? -1 : oldSection;
+
+            if(oldSection != null) {
+                List<V> oldSectionValues = oldValues.get(oldSection);
+                List<V> newSectionValues = newIndex.getSectionValueList(i);
+                if(oldSectionValues != newSectionValues)
+                    childDiffs[i] = DiffUtil.calculateDiff(new ChildCallback<>(oldSectionValues, newSectionValues, callback), true);
+            }
+        }
+
+        return new SectionDiff<>(oldChildCounts, newIndex, oldSections, findStayingSections(oldSections), childDiffs);
+    }
+
+    /**
+     * Retained sections which form the longest increasing subsequence of old positions keep their place.
+     */
+    private static boolean[] findStayingSections(int[] oldSections) {
+        int n = oldSections.length;
+        int[] tails = new int[n];
+        int[] predecessors = new int[n];
+        int length = 0;
+
+        for (int i = 0; i < n; i++) {
+            if(oldSections[i] < 0)
+                continue;
+
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if(oldSections[tails[mid]] < oldSections[i])
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if(low == length)
+                length++;
+        }
+
+        boolean[] stays = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = predecessors[i])
+            stays[i] = true;
+
+        return stays;
+    }
+
+    public SectionIndex<K, V> getNewIndex() {
+        return newIndex;
+    }
+
+    /**
+     * Dispatches the row based notifications to the given adapter.
+     */
+    public void dispatchUpdatesTo(RecyclerView.Adapter<?> adapter) {
+        dispatchUpdatesTo(new AdapterRowUpdateCallback(adapter));
+    }
+
+    /**
+     * Dispatches the row based notifications to the given callback.
+     * The positions are valid in the order the notifications are dispatched.
+     */
+    public void dispatchUpdatesTo(RowUpdateCallback callback) {
+        boolean useCustomChildDividers = newIndex.usesCustomChildDividers();
+        int newSectionCount = newIndex.getSectionCount();
+
+        //region Removed sections, back to front so the old positions stay valid
+        boolean[] retained = new boolean[oldChildCounts.length];
+        for (int oldSection : oldSections) {
+            if(oldSection >= 0)
+                retained[oldSection] = true;
+        }
+
+        int oldRowCount = 0;
+        for (int i = 0; i < oldChildCounts.length; i++)
+            oldRowCount += rowsOfOldSection(i);
+
+        for (int i = retained.length - 1; i >= 0; i--) {
+            oldRowCount -= rowsOfOldSection(i);
+            if(!retained[i])
+                callback.onRemoved(oldRowCount, rowsOfOldSection(i));
+        }
+        //endregion
+
+        //region Moved sections, placed right behind their predecessor in the new order
+        int[] rows = new int[newSectionCount];
+        Integer[] newSectionsByOldOrder = new Integer[oldChildCounts.length];
+        for (int i = 0; i < newSectionCount; i++) {
+            if(oldSections[i] >= 0) {
+                rows[i] = rowsOfOldSection(oldSections[i]);
+                newSectionsByOldOrder[oldSections[i]] = i;
+            }
+        }
+
+        List<Integer> order = new ArrayList<>(newSectionCount);
+        for (Integer newSection : newSectionsByOldOrder) {
+            if(newSection != null)
+                order.add(newSection);
+        }
+
+        int predecessor = -1;
+        for (int i = 0; i < newSectionCount; i++) {
+            if(oldSections[i] < 0)
+                continue;
+
+            if(!stays[i]) {
+                int current = order.indexOf(i);
+                int from = rowStartOf(order, rows, current);
+                order.remove(current);
+
+                int target = predecessor < 0 ? 0 : order.indexOf(predecessor) + 1;
+                int to = rowStartOf(order, rows, target);
+                order.add(target, i);
+
+                moveRows(callback, from, to, rows[i]);
+            }
+            predecessor = i;
+        }
+        //endregion
+
+        //region Inserted sections and changed children, front to back
+        final ChildUpdateTranslator translator = new ChildUpdateTranslator(callback, useCustomChildDividers);
+        ListUpdateCallback childCallback = new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                translator.onInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                translator.onRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                translator.onMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                translator.onChanged(position, count, payload);
+            }
+        };
+        int row = 0;
+        for (int i = 0; i < newSectionCount; i++) {
+            if(oldSections[i] < 0) {
+                int newRows = SectionIndex.rowsFor(newIndex.getChildCount(i), useCustomChildDividers);
+                callback.onInserted(row, newRows);
+                row += newRows;
+            }
+            else {
+                translator.forSection(row, oldChildCounts[oldSections[i]]);
+                if(childDiffs[i] != null)
+                    childDiffs[i].dispatchUpdatesTo(childCallback);
+
+                row += translator.getRowCount();
+            }
+        }
+        //endregion
+    }
+
+    private int rowsOfOldSection(int oldSection) {
+        return SectionIndex.rowsFor(oldChildCounts[oldSection], newIndex.usesCustomChildDividers());
+    }
+
+    private static int rowStartOf(List<Integer> order, int[] rows, int orderPosition) {
+        int start = 0;
+        for (int i = 0; i < orderPosition; i++)
+            start += rows[order.get(i)];
+
+        return start;
+    }
+
+    /**
+     * Moves a block of rows one row at a time.
+     * @param to The start of the block after the move, measured without the block itself.
+     */
+    private static void moveRows(RowUpdateCallback callback, int from, int to, int count) {
+        if(to < from) {
+            for (int i = 0; i < count; i++)
+                callback.onMoved(from + i, to + i);
+        }
+        else if(to > from) {
+            for (int i = 0; i < count; i++)
+                callback.onMoved(from, to + count - 1);
+        }
+    }
+
+    private static class ChildCallback<V> extends DiffUtil.Callback {
+        private final List<V> oldValues;
+        private final List<V> newValues;
+        private final SectionDiffCallback<V> callback;
+
+        ChildCallback(List<V> oldValues, List<V> newValues, SectionDiffCallback<V> callback) {
+            this.oldValues = oldValues;
+            this.newValues = newValues;
+            this.callback = callback;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldValues.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newValues.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return callback.areItemsTheSame(oldValues.get(oldItemPosition), newValues.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return callback.areContentsTheSame(oldValues.get(oldItemPosition), newValues.get(newItemPosition));
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return callback.getChangePayload(oldValues.get(oldItemPosition), newValues.get(newItemPosition));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package at.shanakor.sectionadapter;
+
+/**
+ * Determines how the children of two data loads are compared by a {@link SectionDiff}.
+ * Sections are matched by their keys (using {@code equals}), so only the children need a callback.
+ */
+public abstract class SectionDiffCallback<V> {
+    /**
+     * @return Whether both values represent the same item, e.g. by comparing their ids.
+     */
+    public abstract boolean areItemsTheSame(V oldValue, V newValue);
+
+    /**
+     * Is only called if {@link #areItemsTheSame} returned true.
+     * @return Whether both values would be displayed the same way.
+     */
+    public abstract boolean areContentsTheSame(V oldValue, V newValue);
+
+    /**
+     * Is only called if {@link #areContentsTheSame} returned false.
+     * @return A payload which describes the change (e.g. which field changed), which is handed to the bind methods
+     *         of the {@link RecyclerViewSectionAdapter} to update only that part, or null to rebind the whole view.
+     */
+    public Object getChangePayload(V oldValue, V newValue) {
+        return null;
+    }
+}
@@ -0,0 +1,861 @@
+package at.shanakor.sectionadapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A flattened view of grouped data which maps adapter positions to sections and children.
+ * Every row is described by primitive data only (a row type table and Fenwick trees over the row and child counts of
+ * the sections), so no wrapper object is allocated per row.
+ * The row layout is: section header, first child, [divider, child]*.
+ * Divider rows are only present if the index was created with {@code useCustomChildDividers}.
+ * <p>
+ * Position lookups take O(log sections). The index can be modified in place via {@link #insertChild},
+ * {@link #removeChild}, {@link #moveChild}, {@link #insertSection} and {@link #removeSection}.
+ * Child modifications update the position mapping in O(log sections) and shift the row type table with a single array copy,
+ * section modifications rebuild the trees in O(sections). A value list is copied once before it is modified the first time,
+ * so the data of the {@link GroupedDataProvider} is never changed.
+ * <p>
+ * Sections can be collapsed via {@link #collapseSection} so only their header is displayed. The row tree holds the visible rows
+ * of every section, so collapsing or expanding updates the position mapping in O(log sections). Children of collapsed sections
+ * can still be modified, but produce no row updates.
+ * <p>
+ * The aggregates of {@link #setAggregators} are kept per section and updated along with the child modifications.
+ * Sections of lazily loaded values are not aggregated.
+ */
+public class SectionIndex<K, V> {
+    /**
+     * Row types. They match the ordinals of the adapters' {@code ITEM_VIEW_TYPE} enums.
+     */
+    public static final byte TYPE_SECTION = 0;
+    public static final byte TYPE_CHILD = 1;
+    public static final byte TYPE_CHILD_DIVIDER = 2;
+
+    /** The number of modifications whose first changed row is remembered, a power of two. */
+    private static final int MODIFICATION_HISTORY = 32;
+
+    /**
+     * Marks the value lists which load their values on access, e.g. from a page cache. Their sections are not aggregated.
+     */
+    interface LazyValues {
+    }
+
+    private static class Section<K, V> {
+        private K key;
+        /** The data the key has been grouped into unboxed or null once the key has been boxed. */
+        private PrimitiveGroupedData<K, V> primitiveData = null;
+        private long primitiveKey;
+        List<V> values;
+        boolean copied = false;
+        /** The copy of the modified values which {@link #getGroupedData()} has handed out or null if the values changed since. */
+        List<V> published = null;
+        boolean collapsed = false;
+        /** The values of the registered aggregators or null if none are registered or the values are lazy. */
+        long[] aggregates = null;
+
+        Section(K key, List<V> values) {
+            this.key = key;
+            this.values = values;
+        }
+
+        Section(PrimitiveGroupedData<K, V> primitiveData, long primitiveKey, List<V> values) {
+            this.primitiveData = primitiveData;
+            this.primitiveKey = primitiveKey;
+            this.values = values;
+        }
+
+        /**
+         * Boxes a primitive key on the first call.
+         */
+        K key() {
+            if(primitiveData != null) {
+                key = primitiveData.box(primitiveKey);
+                primitiveData = null;
+            }
+
+            return key;
+        }
+
+        /**
+         * @return The values of the provider while they are unmodified, otherwise a copy which stays unchanged.
+         */
+        List<V> publishedValues() {
+            if(!copied)
+                return values;
+            if(published == null)
+                published = new ArrayList<>(values);
+
+            return published;
+        }
+
+        List<V> modifiableValues() {
+            if(!copied) {
+                values = new ArrayList<>(values);
+                copied = true;
+            }
+
+            published = null;
+            return values;
+        }
+    }
+
+    private final boolean useCustomChildDividers;
+    private final ArrayList<Section<K, V>> sections;
+
+    /** The number of visible rows of every section, which is 1 for collapsed sections. */
+    private final FenwickTree rowCounts;
+    /** The number of children of every section. */
+    private final FenwickTree childCounts;
+    private byte[] rowTypes;
+    private int rowCount = 0;
+    private int collapsedSectionCount = 0;
+
+    /** Caches of {@link #getSections()} and {@link #getGroupedData()}, which are reset by modifications. */
+    private Object[] keys = null;
+    private LinkedHashMap<K, List<V>> groupedData;
+    private int modificationCount = 0;
+    /** The first changed row of each of the last {@link #MODIFICATION_HISTORY} modifications, indexed by their modification count. */
+    private final int[] modifiedRows = new int[MODIFICATION_HISTORY];
+
+    private ViewTypeRegistry<K, V> viewTypeRegistry;
+    private List<SectionAggregator<V>> aggregators = new ArrayList<>();
+
+    private final ChildUpdateTranslator translator;
+    private RowUpdateCallback externalCallback = null;
+    /** The section of the running child modification. */
+    private int currentSection = 0;
+
+    /**
+     * @param groupedData The grouped data to flatten. The sections are laid out in the map's iteration order.
+     * @param useCustomChildDividers Whether or not a divider row should be inserted between every two children.
+     */
+    public SectionIndex(LinkedHashMap<K, List<V>> groupedData, boolean useCustomChildDividers) {
+        this(groupedData, useCustomChildDividers, null);
+    }
+
+    /**
+     * @param groupedData The grouped data to flatten. The sections are laid out in the map's iteration order.
+     * @param useCustomChildDividers Whether or not a divider row should be inserted between every two children.
+     * @param viewTypeRegistry Additional view types of sections and children or null.
+     */
+    public SectionIndex(LinkedHashMap<K, List<V>> groupedData, boolean useCustomChildDividers, ViewTypeRegistry<K, V> viewTypeRegistry) {
+        this(sectionsOf(groupedData), groupedData, useCustomChildDividers, viewTypeRegistry);
+    }
+
+    /**
+     * Flattens data with primitive keys. The key of a section is boxed once it is requested the first time.
+     * @param primitiveData The grouped data to flatten. The sections are laid out in the order of its groups.
+     * @param useCustomChildDividers Whether or not a divider row should be inserted between every two children.
+     * @param viewTypeRegistry Additional view types of sections and children or null.
+     */
+    public SectionIndex(PrimitiveGroupedData<K, V> primitiveData, boolean useCustomChildDividers, ViewTypeRegistry<K, V> viewTypeRegistry) {
+        this(sectionsOf(primitiveData), null, useCustomChildDividers, viewTypeRegistry);
+    }
+
+    private SectionIndex(ArrayList<Section<K, V>> sections, LinkedHashMap<K, List<V>> groupedData, boolean useCustomChildDividers,
+                         ViewTypeRegistry<K, V> viewTypeRegistry) {
+        this.sections = sections;
+        this.groupedData = groupedData;
+        this.useCustomChildDividers = useCustomChildDividers;
+        this.viewTypeRegistry = viewTypeRegistry;
+        this.translator = new ChildUpdateTranslator(new RowTypeUpdater(), useCustomChildDividers);
+
+        int sectionCount = sections.size();
+        int[] sectionRows = new int[sectionCount];
+        int[] sectionChildren = new int[sectionCount];
+        for (int section = 0; section < sectionCount; section++) {
+            sectionChildren[section] = sections.get(section).values.size();
+            sectionRows[section] = rowsFor(sectionChildren[section], useCustomChildDividers);
+            rowCount += sectionRows[section];
+        }
+        this.rowCounts = new FenwickTree(sectionRows, sectionCount);
+        this.childCounts = new FenwickTree(sectionChildren, sectionCount);
+
+        this.rowTypes = new byte[rowCount];
+        fillAllRowTypes();
+    }
+
+    private static <K, V> ArrayList<Section<K, V>> sectionsOf(LinkedHashMap<K, List<V>> groupedData) {
+        if(groupedData == null)
+            throw new IllegalArgumentException("The parameter 'groupedData' can not be null!");
+
+        ArrayList<Section<K, V>> sections = new ArrayList<>(groupedData.size());
+        for (Map.Entry<K, List<V>> entry : groupedData.entrySet())
+            sections.add(new Section<>(entry.getKey(), entry.getValue()));
+
+        return sections;
+    }
+
+    private static <K, V> ArrayList<Section<K, V>> sectionsOf(PrimitiveGroupedData<K, V> primitiveData) {
+        if(primitiveData == null)
+            throw new IllegalArgumentException("The parameter 'primitiveData' can not be null!");
+
+        ArrayList<Section<K, V>> sections = new ArrayList<>(primitiveData.getGroupCount());
+        for (int i = 0; i < primitiveData.getGroupCount(); i++)
+            sections.add(new Section<>(primitiveData, primitiveData.getPrimitiveKey(i), primitiveData.getValues(i)));
+
+        return sections;
+    }
+
+    /**
+     * @return The number of rows (headers, children and dividers) a section with the given amount of children occupies.
+     */
+    static int rowsFor(int children, boolean useCustomChildDividers) {
+        if(useCustomChildDividers && children > 0)
+            return 2 * children;
+
+        return 1 + children;
+    }
+
+    private void fillAllRowTypes() {
+        int start = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            int rows = rowCounts.get(i);
+            fillRowTypes(i, start, start, start + rows);
+            start += rows;
+        }
+    }
+
+    /**
+     * Sets the types of the rows in [from, to) of the given section, which starts at the given row.
+     * Registered view types are resolved here, so they are looked up only once per row.
+     */
+    private void fillRowTypes(int section, int sectionStart, int from, int to) {
+        boolean resolveSectionTypes = viewTypeRegistry != null && viewTypeRegistry.hasSectionTypes();
+        boolean resolveChildTypes = viewTypeRegistry != null && viewTypeRegistry.hasChildTypes();
+
+        if(from == sectionStart && from < to)
+            rowTypes[from++] = resolveSectionTypes ? viewTypeRegistry.resolveSectionType(sections.get(section).key()) : TYPE_SECTION;
+
+        if(useCustomChildDividers) {
+            for (int row = from; row < to; row++) {
+                if(((row - sectionStart) & 1) == 0)
+                    rowTypes[row] = TYPE_CHILD_DIVIDER;
+                else
+                    rowTypes[row] = resolveChildTypes ? resolveChildType(section, sectionStart, row) : TYPE_CHILD;
+            }
+        }
+        else if(resolveChildTypes) {
+            for (int row = from; row < to; row++)
+                rowTypes[row] = resolveChildType(section, sectionStart, row);
+        }
+        else
+            Arrays.fill(rowTypes, from, to, TYPE_CHILD);
+    }
+
+    private byte resolveChildType(int section, int sectionStart, int row) {
+        return viewTypeRegistry.resolveChildType(sections.get(section).values.get(childOffset(row - sectionStart)));
+    }
+
+    /**
+     * @return The grouped data this index represents. If the index has been modified, the map is recreated once.
+     *         The returned map is never changed afterwards, the value lists of sections which have been modified since the previous call
+     *         are copied here, so the map can be handed to another thread. The index keeps modifying its own lists without copying them again.
+     */
+    public LinkedHashMap<K, List<V>> getGroupedData() {
+        if(groupedData == null) {
+            groupedData = new LinkedHashMap<>(sections.size() * 4 / 3 + 1);
+            for (Section<K, V> section : sections)
+                groupedData.put(section.key(), section.publishedValues());
+        }
+
+        return groupedData;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    /**
+     * @return The number of children over all sections.
+     */
+    public int getChildCount() {
+        return childCounts.total();
+    }
+
+    /**
+     * @return The number of children inside the given section.
+     */
+    public int getChildCount(int section) {
+        return childCounts.get(section);
+    }
+
+    public boolean usesCustomChildDividers() {
+        return useCustomChildDividers;
+    }
+
+    /**
+     * @return A counter which is incremented by every modification, to detect whether the index changed in the meantime.
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * @param modificationCount A previous result of {@link #getModificationCount()}.
+     * @return The first row which may have changed (its type, content or position) since then, {@link #getRowCount()} if nothing changed.
+     *         0 if the modifications are too far back to be remembered.
+     */
+    public int getFirstRowModifiedSince(int modificationCount) {
+        int modifications = this.modificationCount - modificationCount;
+        if(modifications < 0 || modifications > MODIFICATION_HISTORY)
+            return 0;
+
+        int firstRow = rowCount;
+        for (int i = modificationCount; i != this.modificationCount; i++)
+            firstRow = Math.min(firstRow, modifiedRows[i & (MODIFICATION_HISTORY - 1)]);
+
+        return firstRow;
+    }
+
+    /**
+     * Sets the additional view types and resolves the types of all rows again.
+     * @param viewTypeRegistry Additional view types of sections and children or null.
+     */
+    public void setViewTypeRegistry(ViewTypeRegistry<K, V> viewTypeRegistry) {
+        this.viewTypeRegistry = viewTypeRegistry;
+        fillAllRowTypes();
+    }
+
+    public ViewTypeRegistry<K, V> getViewTypeRegistry() {
+        return viewTypeRegistry;
+    }
+
+    /**
+     * @return One of {@link #TYPE_SECTION}, {@link #TYPE_CHILD}, {@link #TYPE_CHILD_DIVIDER} or a type of the {@link ViewTypeRegistry}.
+     */
+    public int getRowType(int position) {
+        return rowTypes[position];
+    }
+
+    /**
+     * @return The index of the section the given adapter position belongs to.
+     */
+    public int getSectionForPosition(int position) {
+        return rowCounts.indexOf(position);
+    }
+
+    /**
+     * @return The adapter position of the given section's header.
+     */
+    public int getPositionForSection(int section) {
+        return rowCounts.prefixSum(section);
+    }
+
+    /**
+     * @return The keys of all sections. The array is cached until sections are inserted or removed, so do not modify it.
+     */
+    public Object[] getSections() {
+        if(keys == null) {
+            keys = new Object[sections.size()];
+            for (int i = 0; i < keys.length; i++)
+                keys[i] = sections.get(i).key();
+        }
+
+        return keys;
+    }
+
+    /**
+     * @return The level of the given section if the data has been grouped by several levels (see {@link SectionPath}), otherwise 0.
+     */
+    public int getSectionDepth(int section) {
+        K key = sections.get(section).key();
+        return key instanceof SectionPath ? ((SectionPath) key).getDepth() : 0;
+    }
+
+    public K getSectionKey(int section) {
+        return sections.get(section).key();
+    }
+
+    /**
+     * @return An unmodifiable view of the values of the given section, which follows later modifications.
+     *         Use {@link #getGroupedData()} for values which stay unchanged.
+     */
+    public List<V> getSectionValues(int section) {
+        return Collections.unmodifiableList(sections.get(section).values);
+    }
+
+    /**
+     * @return The list of the given section itself, e.g. to detect unchanged sections by identity.
+     */
+    List<V> getSectionValueList(int section) {
+        return sections.get(section).values;
+    }
+
+    /**
+     * @return The position of the child at the given adapter position inside its section.
+     */
+    public int getPositionInSection(int position) {
+        return childOffset(position - getPositionForSection(getSectionForPosition(position)));
+    }
+
+    /**
+     * @return The position of the child at the given adapter position in a global context. (To enumerate children across groups).
+     */
+    public int getGlobalChildPosition(int position) {
+        int section = getSectionForPosition(position);
+        return childCounts.prefixSum(section) + childOffset(position - getPositionForSection(section));
+    }
+
+    /**
+     * @return The child at the given adapter position.
+     */
+    public V getChild(int position) {
+        int section = getSectionForPosition(position);
+        return sections.get(section).values.get(childOffset(position - getPositionForSection(section)));
+    }
+
+    /**
+     * @return The child at the given position inside the given section.
+     */
+    public V getChild(int section, int positionInSection) {
+        return sections.get(section).values.get(positionInSection);
+    }
+
+    /**
+     * @return The adapter position of the given child or -1 if its section is collapsed.
+     */
+    public int getPositionForChild(int section, int positionInSection) {
+        if(sections.get(section).collapsed)
+            return -1;
+
+        return getPositionForSection(section) + 1 + (useCustomChildDividers ? 2 * positionInSection : positionInSection);
+    }
+
+    /**
+     * @return The section which contains the child with the given global position.
+     */
+    public int getSectionForGlobalChild(int globalChildPosition) {
+        return childCounts.indexOf(globalChildPosition);
+    }
+
+    /**
+     * @return The adapter position of the child with the given global position or -1 if its section is collapsed.
+     */
+    public int getPositionForGlobalChild(int globalChildPosition) {
+        int section = getSectionForGlobalChild(globalChildPosition);
+        return getPositionForChild(section, globalChildPosition - childCounts.prefixSum(section));
+    }
+
+    /**
+     * @return The global position of the given section's first child.
+     */
+    public int getGlobalChildPositionForSection(int section) {
+        return childCounts.prefixSum(section);
+    }
+
+    /**
+     * @param rowInSection The row relative to the section header.
+     */
+    private int childOffset(int rowInSection) {
+        return useCustomChildDividers ? (rowInSection - 1) >> 1 : rowInSection - 1;
+    }
+
+    /**
+     * @return The key for section rows, the value for child rows and null for divider rows.
+     */
+    public Object getItem(int position) {
+        int type = rowTypes[position];
+        if(type == TYPE_CHILD_DIVIDER)
+            return null;
+        if(type == TYPE_SECTION || viewTypeRegistry != null && viewTypeRegistry.isSectionType(type))
+            return sections.get(getSectionForPosition(position)).key();
+
+        return getChild(position);
+    }
+
+    //region Aggregates
+    /**
+     * Computes the given aggregates of all sections in a single pass over the children, replacing the previous ones.
+     * Can be called on a background thread before the index is displayed. Sections whose values are {@link LazyValues} are skipped,
+     * so they are neither loaded nor resolved.
+     */
+    public void setAggregators(List<SectionAggregator<V>> aggregators) {
+        if(aggregators == null)
+            throw new IllegalArgumentException("The parameter 'aggregators' can not be null!");
+
+        this.aggregators = new ArrayList<>(aggregators);
+        for (Section<K, V> section : sections)
+            computeAggregates(section);
+    }
+
+    public int getAggregatorCount() {
+        return aggregators.size();
+    }
+
+    /**
+     * @param aggregator The position of the aggregator in the list of {@link #setAggregators}.
+     * @return The aggregate of the given section in O(1), the one of an empty section if its values are lazy.
+     */
+    public long getAggregate(int section, int aggregator) {
+        if(aggregator < 0 || aggregator >= aggregators.size())
+            throw new IndexOutOfBoundsException("Aggregator " + aggregator + " of " + aggregators.size());
+
+        long[] aggregates = sections.get(section).aggregates;
+        return aggregates == null ? aggregators.get(aggregator).initial() : aggregates[aggregator];
+    }
+
+    /**
+     * Recomputes the aggregates of the given section, e.g. after one of its children has been changed in place.
+     */
+    public void refreshAggregates(int section) {
+        computeAggregates(sections.get(section));
+    }
+
+    private void computeAggregates(Section<K, V> section) {
+        int count = aggregators.size();
+        if(count == 0 || section.values instanceof LazyValues) {
+            section.aggregates = null;
+            return;
+        }
+
+        long[] aggregates = new long[count];
+        for (int i = 0; i < count; i++)
+            aggregates[i] = aggregators.get(i).initial();
+
+        for (V value : section.values) {
+            for (int i = 0; i < count; i++)
+                aggregates[i] = aggregators.get(i).add(aggregates[i], value);
+        }
+
+        section.aggregates = aggregates;
+    }
+
+    private void addToAggregates(Section<K, V> section, V value) {
+        if(section.aggregates == null)
+            return;
+
+        for (int i = 0; i < aggregators.size(); i++)
+            section.aggregates[i] = aggregators.get(i).add(section.aggregates[i], value);
+    }
+
+    /**
+     * Has to be called after the value has been removed from the section.
+     */
+    private void removeFromAggregates(Section<K, V> section, V value) {
+        if(section.aggregates == null)
+            return;
+
+        for (int i = 0; i < aggregators.size(); i++)
+            section.aggregates[i] = aggregators.get(i).remove(section.aggregates[i], value, section.values);
+    }
+    //endregion
+
+    //region Modifications
+    /**
+     * Inserts a child into a section.
+     * @param callback Receives the inserted rows or null.
+     */
+    public void insertChild(int section, int positionInSection, V value, RowUpdateCallback callback) {
+        int childCount = childCounts.get(section);
+        if(positionInSection < 0 || positionInSection > childCount)
+            throw new IndexOutOfBoundsException("Position " + positionInSection + " in section " + section + " with " + childCount + " children");
+
+        Section<K, V> modifiedSection = sections.get(section);
+        modifiedSection.modifiableValues().add(positionInSection, value);
+        addToAggregates(modifiedSection, value);
+        childCounts.add(section, 1);
+        onModified(false, getPositionForSection(section));
+
+        if(!modifiedSection.collapsed) {
+            rowCounts.add(section, rowsFor(childCount + 1, useCustomChildDividers) - rowsFor(childCount, useCustomChildDividers));
+            dispatch(callback, section, childCount).onInserted(positionInSection, 1);
+        }
+    }
+
+    /**
+     * Removes a child from a section.
+     * @param callback Receives the removed rows or null.
+     * @return The removed child.
+     */
+    public V removeChild(int section, int positionInSection, RowUpdateCallback callback) {
+        int childCount = childCounts.get(section);
+        Section<K, V> modifiedSection = sections.get(section);
+        V value = modifiedSection.modifiableValues().remove(positionInSection);
+        removeFromAggregates(modifiedSection, value);
+        childCounts.add(section, -1);
+        onModified(false, getPositionForSection(section));
+
+        if(!modifiedSection.collapsed) {
+            rowCounts.add(section, rowsFor(childCount - 1, useCustomChildDividers) - rowsFor(childCount, useCustomChildDividers));
+            dispatch(callback, section, childCount).onRemoved(positionInSection, 1);
+        }
+
+        return value;
+    }
+
+    /**
+     * Moves a child inside a section or into another section.
+     * @param callback Receives the moved rows or null. A child which changes its section is removed and inserted.
+     */
+    public void moveChild(int fromSection, int fromPosition, int toSection, int toPosition, RowUpdateCallback callback) {
+        if(fromSection != toSection) {
+            insertChild(toSection, toPosition, removeChild(fromSection, fromPosition, callback), callback);
+            return;
+        }
+
+        int childCount = childCounts.get(fromSection);
+        if(toPosition < 0 || toPosition >= childCount)
+            throw new IndexOutOfBoundsException("Position " + toPosition + " in section " + toSection + " with " + childCount + " children");
+
+        Section<K, V> modifiedSection = sections.get(fromSection);
+        List<V> values = modifiedSection.modifiableValues();
+        values.add(toPosition, values.remove(fromPosition));
+        onModified(false, getPositionForSection(fromSection));
+
+        if(modifiedSection.collapsed)
+            return;
+
+        if(viewTypeRegistry != null && viewTypeRegistry.hasChildTypes()) {
+            int first = getPositionForChild(fromSection, Math.min(fromPosition, toPosition));
+            int last = getPositionForChild(fromSection, Math.max(fromPosition, toPosition));
+            fillRowTypes(fromSection, getPositionForSection(fromSection), first, last + 1);
+        }
+
+        dispatch(callback, fromSection, childCount).onMoved(fromPosition, toPosition);
+    }
+
+    /**
+     * Replaces a child.
+     * @param callback Receives the changed rows with the given payload or null.
+     * @return The replaced child.
+     */
+    public V setChild(int section, int positionInSection, V value, RowUpdateCallback callback, Object payload) {
+        Section<K, V> modifiedSection = sections.get(section);
+        V oldValue = modifiedSection.modifiableValues().set(positionInSection, value);
+        removeFromAggregates(modifiedSection, oldValue);
+        addToAggregates(modifiedSection, value);
+        onModified(false, getPositionForSection(section));
+
+        if(modifiedSection.collapsed)
+            return oldValue;
+
+        if(viewTypeRegistry != null && viewTypeRegistry.hasChildTypes()) {
+            int row = getPositionForChild(section, positionInSection);
+            fillRowTypes(section, getPositionForSection(section), row, row + 1);
+        }
+
+        dispatch(callback, section, childCounts.get(section)).onChanged(positionInSection, 1, payload);
+        return oldValue;
+    }
+
+    /**
+     * Inserts a new section.
+     * @param callback Receives the inserted rows or null.
+     */
+    public void insertSection(int section, K key, List<V> values, RowUpdateCallback callback) {
+        if(values == null)
+            throw new IllegalArgumentException("The parameter 'values' can not be null!");
+        if(section < 0 || section > sections.size())
+            throw new IndexOutOfBoundsException("Section " + section + " of " + sections.size());
+
+        int start = getPositionForSection(section);
+        int rows = rowsFor(values.size(), useCustomChildDividers);
+
+        Section<K, V> insertedSection = new Section<>(key, values);
+        computeAggregates(insertedSection);
+        sections.add(section, insertedSection);
+        rowCounts.insert(section, rows);
+        childCounts.insert(section, values.size());
+        insertRowTypes(start, rows);
+        fillRowTypes(section, start, start, start + rows);
+        onModified(true, start);
+
+        if(callback != null)
+            callback.onInserted(start, rows);
+    }
+
+    /**
+     * Removes a section with all its children.
+     * @param callback Receives the removed rows or null.
+     */
+    public void removeSection(int section, RowUpdateCallback callback) {
+        int start = getPositionForSection(section);
+        int rows = rowCounts.get(section);
+
+        if(sections.remove(section).collapsed)
+            collapsedSectionCount--;
+        rowCounts.remove(section);
+        childCounts.remove(section);
+        removeRowTypes(start, rows);
+        onModified(true, start);
+
+        if(callback != null)
+            callback.onRemoved(start, rows);
+    }
+
+    /**
+     * Hides the children (and dividers) of the given section, only its header stays visible.
+     * @param callback Receives the removed rows or null.
+     */
+    public void collapseSection(int section, RowUpdateCallback callback) {
+        Section<K, V> collapsedSection = sections.get(section);
+        if(collapsedSection.collapsed)
+            return;
+
+        int start = getPositionForSection(section);
+        int hiddenRows = rowCounts.get(section) - 1;
+
+        collapsedSection.collapsed = true;
+        collapsedSectionCount++;
+        rowCounts.set(section, 1);
+        removeRowTypes(start + 1, hiddenRows);
+        onModified(false, start + 1);
+
+        if(callback != null && hiddenRows > 0)
+            callback.onRemoved(start + 1, hiddenRows);
+    }
+
+    /**
+     * Shows the children of a collapsed section again.
+     * @param callback Receives the inserted rows or null.
+     */
+    public void expandSection(int section, RowUpdateCallback callback) {
+        Section<K, V> expandedSection = sections.get(section);
+        if(!expandedSection.collapsed)
+            return;
+
+        int start = getPositionForSection(section);
+        int rows = rowsFor(childCounts.get(section), useCustomChildDividers);
+
+        expandedSection.collapsed = false;
+        collapsedSectionCount--;
+        rowCounts.set(section, rows);
+        insertRowTypes(start + 1, rows - 1);
+        fillRowTypes(section, start, start + 1, start + rows);
+        onModified(false, start + 1);
+
+        if(callback != null && rows > 1)
+            callback.onInserted(start + 1, rows - 1);
+    }
+
+    public boolean isSectionCollapsed(int section) {
+        return sections.get(section).collapsed;
+    }
+
+    public int getCollapsedSectionCount() {
+        return collapsedSectionCount;
+    }
+
+    /**
+     * @return The keys of all collapsed sections, to collapse them again in the index of a refresh.
+     */
+    public List<K> getCollapsedSectionKeys() {
+        List<K> collapsedKeys = new ArrayList<>(collapsedSectionCount);
+        for (Section<K, V> section : sections) {
+            if(section.collapsed)
+                collapsedKeys.add(section.key());
+        }
+
+        return collapsedKeys;
+    }
+
+    /**
+     * Collapses all sections with one of the given keys, e.g. after a refresh. The row type table is rebuilt once.
+     * No row updates are produced, so the adapter has to be refreshed as a whole.
+     */
+    public void collapseSections(Collection<K> keys) {
+        if(keys == null)
+            throw new IllegalArgumentException("The parameter 'keys' can not be null!");
+        if(keys.isEmpty())
+            return;
+
+        Set<K> keySet = keys instanceof Set ? (Set<K>) keys : new HashSet<>(keys);
+        for (int i = 0; i < sections.size(); i++) {
+            Section<K, V> section = sections.get(i);
+            if(!section.collapsed && keySet.contains(section.key())) {
+                section.collapsed = true;
+                collapsedSectionCount++;
+                rowCounts.set(i, 1);
+            }
+        }
+
+        rowCount = rowCounts.total();
+        fillAllRowTypes();
+        onModified(false, 0);
+    }
+
+    /**
+     * @param firstRow The first row which may have changed.
+     */
+    private void onModified(boolean sectionsChanged, int firstRow) {
+        modifiedRows[modificationCount & (MODIFICATION_HISTORY - 1)] = firstRow;
+        modificationCount++;
+        groupedData = null;
+        if(sectionsChanged)
+            keys = null;
+    }
+
+    /**
+     * Prepares the translator which updates the row types and forwards the row updates to the given callback.
+     * @param childCount The number of children before the modification.
+     */
+    private ChildUpdateTranslator dispatch(RowUpdateCallback callback, int section, int childCount) {
+        externalCallback = callback;
+        currentSection = section;
+        return translator.forSection(getPositionForSection(section), childCount);
+    }
+
+    private void insertRowTypes(int position, int count) {
+        if(rowCount + count > rowTypes.length)
+            rowTypes = Arrays.copyOf(rowTypes, Math.max(rowCount + count, rowTypes.length + (rowTypes.length >> 1)));
+
+        System.arraycopy(rowTypes, position, rowTypes, position + count, rowCount - position);
+        rowCount += count;
+    }
+
+    private void removeRowTypes(int position, int count) {
+        System.arraycopy(rowTypes, position + count, rowTypes, position, rowCount - position - count);
+        rowCount -= count;
+    }
+
+    /**
+     * Applies the row updates of child modifications to the row type table, before they are forwarded.
+     */
+    private class RowTypeUpdater implements RowUpdateCallback {
+        @Override
+        public void onInserted(int position, int count) {
+            insertRowTypes(position, count);
+            fillRowTypes(currentSection, translator.getSectionStart(), position, position + count);
+
+            if(externalCallback != null)
+                externalCallback.onInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removeRowTypes(position, count);
+
+            if(externalCallback != null)
+                externalCallback.onRemoved(position, count);
+        }
+
+        /**
+         * Moving children keeps the alternating row layout of a section, so only registered child types change.
+         * These are resolved by {@link #moveChild} already.
+         */
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            if(externalCallback != null)
+                externalCallback.onMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            if(externalCallback != null)
+                externalCallback.onChanged(position, count, payload);
+        }
+    }
+    //endregion
+}
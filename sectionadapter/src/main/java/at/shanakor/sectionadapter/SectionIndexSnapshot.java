@@ -0,0 +1,250 @@
+package at.shanakor.sectionadapter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persists grouped data as a compact binary file, so it can be displayed right away on the next cold start
+ * (see {@code showSnapshot} of the adapters) while the fresh data is loaded in the background.
+ * <p>
+ * The file stores the encoded section keys, the child count of every section and the id of every value.
+ * It is memory-mapped when read, so only the keys are decoded up front. The value lists resolve a value by its id
+ * once it is requested, e.g. when its row is bound. The header holds a format and a data version and a CRC32 of the body,
+ * files with another version or a wrong checksum are deleted and ignored.
+ */
+public final class SectionIndexSnapshot {
+    /**
+     * Converts section keys to strings and back.
+     */
+    public interface KeyCodec<K> {
+        String encode(K key);
+
+        K decode(String encoded);
+    }
+
+    /**
+     * Looks up a value by the id it has been stored with. Is called on the main thread while binding.
+     */
+    public interface ValueResolver<V> {
+        V resolve(long id);
+    }
+
+    private static final int MAGIC = 0x53414958;
+    private static final int FORMAT_VERSION = 1;
+    /** Magic, format version, data version, section count, child count and checksum. */
+    private static final int HEADER_SIZE = 5 * 4 + 8;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private SectionIndexSnapshot() {
+    }
+
+    /**
+     * Writes the given data into a temporary file, which replaces the given file once it is complete.
+     * Has to be called off the main thread. The map returned by {@link SectionIndex#getGroupedData()} can be passed to it.
+     * @param dataVersion A version of the keys and values, files with another version are discarded by {@link #read}.
+     */
+    public static <K, V> void write(File file, LinkedHashMap<K, List<V>> groupedData, int dataVersion, KeyCodec<K> keyCodec, IdExtractor<V> valueIds) throws IOException {
+        if(file == null)
+            throw new IllegalArgumentException("The parameter 'file' can not be null!");
+        if(groupedData == null)
+            throw new IllegalArgumentException("The parameter 'groupedData' can not be null!");
+        if(keyCodec == null)
+            throw new IllegalArgumentException("The parameter 'keyCodec' can not be null!");
+        if(valueIds == null)
+            throw new IllegalArgumentException("The parameter 'valueIds' can not be null!");
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        int childCount = 0;
+        CRC32 checksum = new CRC32();
+
+        FileOutputStream fileOut = new FileOutputStream(tempFile);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fileOut, checksum), 64 * 1024));
+        try {
+            // The header is written once the checksum is known.
+            fileOut.write(new byte[HEADER_SIZE]);
+
+            for (Map.Entry<K, List<V>> entry : groupedData.entrySet()) {
+                byte[] key = keyCodec.encode(entry.getKey()).getBytes(UTF_8);
+                out.writeInt(entry.getValue().size());
+                out.writeInt(key.length);
+                out.write(key);
+                childCount += entry.getValue().size();
+            }
+
+            for (List<V> values : groupedData.values()) {
+                for (int i = 0; i < values.size(); i++)
+                    out.writeLong(valueIds.getId(values.get(i)));
+            }
+        }
+        finally {
+            out.close();
+        }
+
+        RandomAccessFile header = new RandomAccessFile(tempFile, "rw");
+        try {
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            header.writeInt(dataVersion);
+            header.writeInt(groupedData.size());
+            header.writeInt(childCount);
+            header.writeLong(checksum.getValue());
+        }
+        finally {
+            header.close();
+        }
+
+        if(!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /**
+     * Maps the given file and decodes its section keys. Has to be called off the main thread if the file is large,
+     * since the checksum covers the whole file.
+     * @param dataVersion The version the file has to be written with.
+     * @return The grouped data of the file with lazily resolved values or null if there is no valid file.
+     */
+    public static <K, V> LinkedHashMap<K, List<V>> read(File file, int dataVersion, KeyCodec<K> keyCodec, ValueResolver<V> valueResolver) {
+        if(file == null)
+            throw new IllegalArgumentException("The parameter 'file' can not be null!");
+        if(keyCodec == null)
+            throw new IllegalArgumentException("The parameter 'keyCodec' can not be null!");
+        if(valueResolver == null)
+            throw new IllegalArgumentException("The parameter 'valueResolver' can not be null!");
+
+        if(!file.isFile())
+            return null;
+
+        try {
+            LinkedHashMap<K, List<V>> groupedData = map(file, dataVersion, keyCodec, valueResolver);
+            if(groupedData != null)
+                return groupedData;
+        }
+        catch (IOException | BufferUnderflowException | NegativeArraySizeException | IllegalArgumentException e) {
+            // A truncated or otherwise corrupt file, which is discarded below.
+        }
+
+        file.delete();
+        return null;
+    }
+
+    private static <K, V> LinkedHashMap<K, List<V>> map(File file, int dataVersion, KeyCodec<K> keyCodec, ValueResolver<V> valueResolver) throws IOException {
+        ByteBuffer buffer;
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        finally {
+            // The mapping stays valid after the channel has been closed.
+            in.close();
+        }
+
+        if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || buffer.getInt() != dataVersion)
+            return null;
+
+        int sectionCount = buffer.getInt();
+        int childCount = buffer.getInt();
+        long expectedChecksum = buffer.getLong();
+        if(sectionCount < 0 || childCount < 0 || checksum(buffer) != expectedChecksum)
+            return null;
+
+        int[] childCounts = new int[sectionCount];
+        Object[] keys = new Object[sectionCount];
+        for (int i = 0; i < sectionCount; i++) {
+            childCounts[i] = buffer.getInt();
+            if(childCounts[i] < 0)
+                return null;
+
+            byte[] key = new byte[buffer.getInt()];
+            buffer.get(key);
+            keys[i] = keyCodec.decode(new String(key, UTF_8));
+        }
+
+        if(buffer.remaining() != 8L * childCount)
+            return null;
+
+        LongBuffer ids = buffer.slice().asLongBuffer();
+        LinkedHashMap<K, List<V>> groupedData = new LinkedHashMap<>(CollectionHelper.capacityFor(sectionCount));
+        int offset = 0;
+        for (int i = 0; i < sectionCount; i++) {
+            @SuppressWarnings("unchecked")
+            K key = (K) keys[i];
+            groupedData.put(key, new LazyValueList<>(ids, offset, childCounts[i], valueResolver));
+            offset += childCounts[i];
+        }
+
+        return offset == childCount ? groupedData : null;
+    }
+
+    /**
+     * @return The CRC32 of the remaining bytes. The position of the buffer stays unchanged.
+     */
+    private static long checksum(ByteBuffer buffer) {
+        // CRC32.update(ByteBuffer) is not available before API 26, so the body is copied in chunks.
+        ByteBuffer body = buffer.duplicate();
+        byte[] chunk = new byte[64 * 1024];
+        CRC32 checksum = new CRC32();
+        while (body.hasRemaining()) {
+            int length = Math.min(chunk.length, body.remaining());
+            body.get(chunk, 0, length);
+            checksum.update(chunk, 0, length);
+        }
+
+        return checksum.getValue();
+    }
+
+    /**
+     * The values of one section, which are resolved by their id on the first access.
+     */
+    private static final class LazyValueList<V> extends AbstractList<V> implements SectionIndex.LazyValues {
+        private final LongBuffer ids;
+        private final int offset;
+        private final int size;
+        private final ValueResolver<V> valueResolver;
+        private Object[] values = null;
+
+        LazyValueList(LongBuffer ids, int offset, int size, ValueResolver<V> valueResolver) {
+            this.ids = ids;
+            this.offset = offset;
+            this.size = size;
+            this.valueResolver = valueResolver;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(int location) {
+            if(location < 0 || location >= size)
+                throw new IndexOutOfBoundsException("Position " + location + " of " + size);
+
+            if(values == null)
+                values = new Object[size];
+            if(values[location] == null)
+                values[location] = valueResolver.resolve(ids.get(offset + location));
+
+            return (V) values[location];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package at.shanakor.sectionadapter;
+
+import java.util.Arrays;
+
+/**
+ * The key of a section of hierarchically grouped data (see {@link CollectionHelper#groupKeysByLevels}),
+ * e.g. country -> city -> store. It contains the displayable keys of all levels down to the section's own level.
+ * A section with a depth of 0 is a top level header.
+ */
+public final class SectionPath {
+    private final Object[] keys;
+    private final int hashCode;
+
+    SectionPath(Object[] keys) {
+        this.keys = keys;
+        this.hashCode = Arrays.hashCode(keys);
+    }
+
+    /**
+     * @return The level of the section, starting with 0.
+     */
+    public int getDepth() {
+        return keys.length - 1;
+    }
+
+    /**
+     * @return The displayable key of the given level, which has to be less or equal to the depth.
+     */
+    public Object getKey(int level) {
+        return keys[level];
+    }
+
+    /**
+     * @return The displayable key of the section's own level.
+     */
+    public Object getLastKey() {
+        return keys[keys.length - 1];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof SectionPath && Arrays.equals(keys, ((SectionPath) o).keys));
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * @return The key of the section's own level, so fast scroll displays the level's keys.
+     */
+    @Override
+    public String toString() {
+        return String.valueOf(getLastKey());
+    }
+}
@@ -0,0 +1,293 @@
+package at.shanakor.sectionadapter;
+
+import java.util.Arrays;
+
+/**
+ * The selected children of a {@link SectionIndex}, indexed by the global child position which {@code bindChildView} receives,
+ * so header and divider rows never shift the selection.
+ * <p>
+ * The selection is a bitset, toggling a child takes O(1) plus the O(log sections) lookup of its section and whole sections
+ * are selected or deselected a word (64 children) at a time. The number of selected children of every section is kept up to date.
+ * Inserting, removing and moving children shifts the following bits in place, which takes O(children / 64).
+ * The adapters move the selection along with their modification methods. When the data is reloaded, the selection is carried over
+ * by the stable ids of the values (see {@code setIdExtractors}), without them it is cleared.
+ * <p>
+ * The selection does not notify the adapter, so rebind the changed rows afterwards.
+ */
+public class SectionSelection<K, V> {
+    private static final int WORD_BITS = 64;
+
+    private SectionIndex<K, V> index = null;
+    private long[] words = new long[0];
+    private int[] sectionCounts = new int[0];
+    private int selectedCount = 0;
+
+    //region Queries
+    public boolean isSelected(int globalChildPosition) {
+        checkPosition(globalChildPosition);
+        return (words[globalChildPosition >>> 6] & (1L << globalChildPosition)) != 0;
+    }
+
+    /**
+     * @return The number of selected children over all sections.
+     */
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+
+    /**
+     * @return The number of selected children inside the given section.
+     */
+    public int getSelectedCount(int section) {
+        return sectionCounts[section];
+    }
+
+    /**
+     * @return Whether the given section has children and all of them are selected.
+     */
+    public boolean isSectionSelected(int section) {
+        return sectionCounts[section] > 0 && sectionCounts[section] == index.getChildCount(section);
+    }
+
+    /**
+     * @return The global positions of all selected children in ascending order.
+     */
+    public int[] getSelectedPositions() {
+        int[] positions = new int[selectedCount];
+        int i = 0;
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                positions[i++] = word * WORD_BITS + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+
+        return positions;
+    }
+    //endregion
+
+    //region Selection
+    public void setSelected(int globalChildPosition, boolean selected) {
+        if(isSelected(globalChildPosition) != selected)
+            toggle(globalChildPosition);
+    }
+
+    /**
+     * @return Whether the child is selected afterwards.
+     */
+    public boolean toggle(int globalChildPosition) {
+        checkPosition(globalChildPosition);
+
+        long mask = 1L << globalChildPosition;
+        words[globalChildPosition >>> 6] ^= mask;
+        boolean selected = (words[globalChildPosition >>> 6] & mask) != 0;
+
+        int delta = selected ? 1 : -1;
+        sectionCounts[index.getSectionForGlobalChild(globalChildPosition)] += delta;
+        selectedCount += delta;
+        return selected;
+    }
+
+    public void selectSection(int section) {
+        setSectionSelected(section, true);
+    }
+
+    public void deselectSection(int section) {
+        setSectionSelected(section, false);
+    }
+
+    private void setSectionSelected(int section, boolean selected) {
+        int from = index.getGlobalChildPositionForSection(section);
+        int to = from + index.getChildCount(section);
+        if(from == to)
+            return;
+
+        int fromWord = from >>> 6;
+        int toWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+
+        for (int word = fromWord; word <= toWord; word++) {
+            long mask = -1L;
+            if(word == fromWord)
+                mask &= firstMask;
+            if(word == toWord)
+                mask &= lastMask;
+
+            words[word] = selected ? words[word] | mask : words[word] & ~mask;
+        }
+
+        int newCount = selected ? to - from : 0;
+        selectedCount += newCount - sectionCounts[section];
+        sectionCounts[section] = newCount;
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0);
+        Arrays.fill(sectionCounts, 0);
+        selectedCount = 0;
+    }
+    //endregion
+
+    //region Index changes
+    /**
+     * Carries the selection over to the index of a reload. Children are matched by their ids, without ids the selection is cleared.
+     * @param valueIdExtractor The stable ids of the values or null.
+     */
+    void onIndexReplaced(SectionIndex<K, V> newIndex, IdExtractor<V> valueIdExtractor) {
+        LongIntMap selectedIds = null;
+        if(valueIdExtractor != null && selectedCount > 0) {
+            selectedIds = new LongIntMap(selectedCount);
+            for (int position : getSelectedPositions()) {
+                int section = index.getSectionForGlobalChild(position);
+                V value = index.getChild(section, position - index.getGlobalChildPositionForSection(section));
+                selectedIds.put(valueIdExtractor.getId(value), 0);
+            }
+        }
+
+        index = newIndex;
+        words = new long[wordsFor(newIndex.getChildCount())];
+        sectionCounts = new int[newIndex.getSectionCount()];
+        selectedCount = 0;
+        if(selectedIds == null)
+            return;
+
+        int position = 0;
+        for (int section = 0; section < newIndex.getSectionCount(); section++) {
+            for (int child = 0; child < newIndex.getChildCount(section); child++, position++) {
+                if(selectedIds.get(valueIdExtractor.getId(newIndex.getChild(section, child))) >= 0) {
+                    words[position >>> 6] |= 1L << position;
+                    sectionCounts[section]++;
+                    selectedCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Is called after a child has been inserted, the child is not selected.
+     */
+    void onChildInserted(int globalChildPosition) {
+        shift(globalChildPosition, 1);
+    }
+
+    /**
+     * Is called after a child has been moved, it keeps its selection.
+     * @param fromGlobalChildPosition The global position before the move.
+     * @param toGlobalChildPosition The global position after the move.
+     */
+    void onChildMoved(int fromSection, int fromGlobalChildPosition, int toGlobalChildPosition) {
+        boolean selected = isBitSet(fromGlobalChildPosition);
+        onChildRemoved(fromSection, fromGlobalChildPosition);
+        onChildInserted(toGlobalChildPosition);
+
+        if(selected)
+            toggle(toGlobalChildPosition);
+    }
+
+    /**
+     * Is called after a child has been removed from the given section.
+     */
+    void onChildRemoved(int section, int globalChildPosition) {
+        if(isBitSet(globalChildPosition)) {
+            sectionCounts[section]--;
+            selectedCount--;
+        }
+
+        shift(globalChildPosition + 1, -1);
+    }
+
+    /**
+     * Is called after a section with the given number of (unselected) children has been inserted.
+     */
+    void onSectionInserted(int section, int globalChildPosition, int childCount) {
+        shift(globalChildPosition, childCount);
+
+        int[] counts = new int[sectionCounts.length + 1];
+        System.arraycopy(sectionCounts, 0, counts, 0, section);
+        System.arraycopy(sectionCounts, section, counts, section + 1, sectionCounts.length - section);
+        sectionCounts = counts;
+    }
+
+    /**
+     * Is called after a section with the given number of children has been removed.
+     */
+    void onSectionRemoved(int section, int globalChildPosition, int childCount) {
+        selectedCount -= sectionCounts[section];
+        shift(globalChildPosition + childCount, -childCount);
+
+        int[] counts = new int[sectionCounts.length - 1];
+        System.arraycopy(sectionCounts, 0, counts, 0, section);
+        System.arraycopy(sectionCounts, section + 1, counts, section, counts.length - section);
+        sectionCounts = counts;
+    }
+
+    /**
+     * Moves all bits from the given position on by the given distance in place, which takes O(children / 64). The bitset only
+     * grows when it needs more words. Inserted bits are cleared, bits shifted in front of the given position by a negative
+     * distance are dropped.
+     */
+    private void shift(int from, int distance) {
+        if(distance > 0)
+            shiftUp(from, distance);
+        else if(distance < 0)
+            shiftDown(from + distance, -distance);
+    }
+
+    private void shiftUp(int from, int distance) {
+        int requiredWords = wordsFor(index.getChildCount());
+        if(requiredWords > words.length)
+            words = Arrays.copyOf(words, Math.max(requiredWords, words.length * 2));
+
+        // The bits in front of the position are restored after the words have been shifted.
+        int fromWord = from >>> 6;
+        long front = words[fromWord] & ~(-1L << from);
+        words[fromWord] &= -1L << from;
+
+        int wordShift = distance >>> 6;
+        int bitShift = distance & 63;
+        for (int word = words.length - 1; word >= fromWord; word--) {
+            int source = word - wordShift;
+            long bits = source >= fromWord ? words[source] << bitShift : 0;
+            if(bitShift != 0 && source > fromWord)
+                bits |= words[source - 1] >>> -bitShift;
+
+            words[word] = bits;
+        }
+
+        words[fromWord] |= front;
+    }
+
+    private void shiftDown(int to, int distance) {
+        int toWord = to >>> 6;
+        long front = words[toWord] & ~(-1L << to);
+
+        int wordShift = distance >>> 6;
+        int bitShift = distance & 63;
+        for (int word = toWord; word < words.length; word++) {
+            int source = word + wordShift;
+            long bits = source < words.length ? words[source] >>> bitShift : 0;
+            if(bitShift != 0 && source + 1 < words.length)
+                bits |= words[source + 1] << -bitShift;
+
+            words[word] = bits;
+        }
+
+        words[toWord] = words[toWord] & (-1L << to) | front;
+    }
+    //endregion
+
+    private boolean isBitSet(int position) {
+        return position >>> 6 < words.length && (words[position >>> 6] & (1L << position)) != 0;
+    }
+
+    private void checkPosition(int globalChildPosition) {
+        if(index == null || globalChildPosition < 0 || globalChildPosition >= index.getChildCount())
+            throw new IndexOutOfBoundsException("Child " + globalChildPosition + " of " + (index == null ? 0 : index.getChildCount()));
+    }
+
+    private static int wordsFor(int bits) {
+        return (bits + WORD_BITS - 1) / WORD_BITS;
+    }
+}
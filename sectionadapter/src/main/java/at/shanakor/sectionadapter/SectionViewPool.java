@@ -0,0 +1,49 @@
+package at.shanakor.sectionadapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+/**
+ * A {@link RecyclerView.RecycledViewPool} which is sized per view type, to be shared by several section lists on one screen
+ * via {@link RecyclerView#setRecycledViewPool}. All adapters sharing the pool have to use the same ViewHolder type per view type,
+ * which includes their registered view types.
+ * <p>
+ * {@link RecyclerViewSectionAdapter#warmUpViewHolders} grows the size of a view type to the number of warmed up ViewHolders.
+ */
+public class SectionViewPool extends RecyclerView.RecycledViewPool {
+    /**
+     * The size of every view type whose size has not been set, as in {@link RecyclerView.RecycledViewPool}.
+     */
+    public static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    private final SparseIntArray maxRecycledViews = new SparseIntArray();
+
+    /**
+     * @param sectionViews The number of section ViewHolders which are kept.
+     * @param childViews The number of child ViewHolders which are kept.
+     * @param childDividerViews The number of childDivider ViewHolders which are kept.
+     */
+    public SectionViewPool(int sectionViews, int childViews, int childDividerViews) {
+        setMaxRecycledViews(SectionIndex.TYPE_SECTION, sectionViews);
+        setMaxRecycledViews(SectionIndex.TYPE_CHILD, childViews);
+        setMaxRecycledViews(SectionIndex.TYPE_CHILD_DIVIDER, childDividerViews);
+    }
+
+    @Override
+    public void setMaxRecycledViews(int viewType, int max) {
+        maxRecycledViews.put(viewType, max);
+        super.setMaxRecycledViews(viewType, max);
+    }
+
+    public int getMaxRecycledViews(int viewType) {
+        return maxRecycledViews.get(viewType, DEFAULT_MAX_RECYCLED_VIEWS);
+    }
+
+    /**
+     * Grows the size of the given view type to at least the given number of ViewHolders.
+     */
+    void ensureCapacity(int viewType, int count) {
+        if(getMaxRecycledViews(viewType) < count)
+            setMaxRecycledViews(viewType, count);
+    }
+}
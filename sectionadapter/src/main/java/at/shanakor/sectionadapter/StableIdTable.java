@@ -0,0 +1,121 @@
+package at.shanakor.sectionadapter;
+
+import java.util.Arrays;
+
+/**
+ * The stable ids of all rows of a {@link SectionIndex} and the reverse mapping from id to adapter position.
+ * The top two bits of a row id tag the row type, the lower 62 bits hold the id of the key for section rows and the id of the value
+ * for child rows respectively of the following child for divider rows. So the ids of keys and values never collide with each other,
+ * they only have to be unique in their lower 62 bits among themselves. Child rows of values with non negative ids use the value ids unchanged.
+ * Both tables are built with the rows. After a modification of the index they are refilled lazily
+ * from the section of the first changed row on (see {@link SectionIndex#getFirstRowModifiedSince}), afterwards every lookup takes O(1).
+ */
+class StableIdTable<K, V> {
+    private static final long ID_MASK = (1L << 62) - 1;
+    private static final long TAG_SECTION = 1L << 62;
+    private static final long TAG_CHILD_DIVIDER = 2L << 62;
+
+    private final IdExtractor<K> keyIdExtractor;
+    private final IdExtractor<V> valueIdExtractor;
+
+    private SectionIndex<K, V> index = null;
+    private int modificationCount = -1;
+    private long[] rowIds = new long[0];
+    private LongIntMap positions = new LongIntMap(0);
+
+    StableIdTable(IdExtractor<K> keyIdExtractor, IdExtractor<V> valueIdExtractor) {
+        if(keyIdExtractor == null)
+            throw new IllegalArgumentException("The parameter 'keyIdExtractor' can not be null!");
+        if(valueIdExtractor == null)
+            throw new IllegalArgumentException("The parameter 'valueIdExtractor' can not be null!");
+
+        this.keyIdExtractor = keyIdExtractor;
+        this.valueIdExtractor = valueIdExtractor;
+    }
+
+    IdExtractor<V> getValueIdExtractor() {
+        return valueIdExtractor;
+    }
+
+    /**
+     * @return The id of the row at the given adapter position.
+     */
+    long getId(SectionIndex<K, V> index, int position) {
+        update(index);
+        return rowIds[position];
+    }
+
+    /**
+     * @return The adapter position of the row with the given id or -1 if there is none.
+     */
+    int getPosition(SectionIndex<K, V> index, long id) {
+        update(index);
+        int position = positions.get(id);
+
+        return position >= 0 && position < index.getRowCount() && rowIds[position] == id ? position : -1;
+    }
+
+    private void update(SectionIndex<K, V> index) {
+        int rowCount = index.getRowCount();
+        int firstRow = this.index == index ? index.getFirstRowModifiedSince(modificationCount) : 0;
+        // Ids of removed rows pile up in the map until it is rebuilt.
+        if(positions.size() > 2 * rowCount + 16)
+            firstRow = 0;
+
+        if(firstRow == 0) {
+            if(rowIds.length < rowCount || rowIds.length > 2 * rowCount + 16)
+                rowIds = new long[rowCount];
+            positions = new LongIntMap(rowCount);
+        }
+        else if(rowIds.length < rowCount)
+            rowIds = Arrays.copyOf(rowIds, Math.max(rowCount, rowIds.length + (rowIds.length >> 1)));
+
+        // The rows are refilled from the start of the section of the first changed row. Entries of removed rows stay in the map,
+        // but point to rows with another id, which getPosition detects.
+        boolean useCustomChildDividers = index.usesCustomChildDividers();
+        int section = firstRow < rowCount ? index.getSectionForPosition(firstRow) : index.getSectionCount();
+        int row = firstRow < rowCount ? index.getPositionForSection(section) : rowCount;
+        for (; section < index.getSectionCount(); section++) {
+            putRow(row++, sectionId(keyIdExtractor.getId(index.getSectionKey(section))));
+
+            int childCount = index.isSectionCollapsed(section) ? 0 : index.getChildCount(section);
+            for (int child = 0; child < childCount; child++) {
+                long id = valueIdExtractor.getId(index.getChild(section, child));
+
+                if(useCustomChildDividers && child > 0)
+                    putRow(row++, childDividerId(id));
+
+                putRow(row++, childId(id));
+            }
+        }
+
+        this.index = index;
+        this.modificationCount = index.getModificationCount();
+    }
+
+    /**
+     * @return The row id of the section with the given key id.
+     */
+    static long sectionId(long keyId) {
+        return (keyId & ID_MASK) | TAG_SECTION;
+    }
+
+    /**
+     * @return The row id of the child with the given value id.
+     */
+    static long childId(long valueId) {
+        return valueId & ID_MASK;
+    }
+
+    /**
+     * @return The row id of the divider in front of the child with the given value id.
+     */
+    static long childDividerId(long valueId) {
+        return (valueId & ID_MASK) | TAG_CHILD_DIVIDER;
+    }
+
+    private void putRow(int row, long id) {
+        rowIds[row] = id;
+        positions.put(id, row);
+    }
+}
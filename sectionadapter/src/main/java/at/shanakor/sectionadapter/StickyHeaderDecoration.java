@@ -0,0 +1,136 @@
+package at.shanakor.sectionadapter;
+
+import android.graphics.Canvas;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Draws the header of the topmost section above the rows of a vertical {@link RecyclerView}
+ * which displays a {@link RecyclerViewSectionAdapter}. The next header pushes the sticky one out of the way.
+ * <p>
+ * The section of the first visible row is looked up in O(log sections) from the {@link SectionIndex}.
+ * One header ViewHolder is kept per section view type. It is only bound again when the topmost section changes
+ * (or the data has been reloaded or modified) and only measured again after binding or when the width of the RecyclerView changed.
+ */
+public class StickyHeaderDecoration<K, V, VH extends RecyclerView.ViewHolder> extends RecyclerView.ItemDecoration {
+    private static class Header<K, V, VH> {
+        final VH holder;
+        SectionIndex<K, V> index = null;
+        int modificationCount = -1;
+        int section = -1;
+        int width = -1;
+
+        Header(VH holder) {
+            this.holder = holder;
+        }
+    }
+
+    private final RecyclerViewSectionAdapter<K, V, VH> adapter;
+    private final SparseArray<Header<K, V, VH>> headers = new SparseArray<>();
+
+    public StickyHeaderDecoration(RecyclerViewSectionAdapter<K, V, VH> adapter) {
+        if(adapter == null)
+            throw new IllegalArgumentException("The parameter 'adapter' can not be null!");
+
+        this.adapter = adapter;
+    }
+
+    @Override
+    public void onDrawOver(Canvas canvas, RecyclerView parent, RecyclerView.State state) {
+        if(parent.getChildCount() == 0)
+            return;
+
+        View firstChild = parent.getChildAt(0);
+        int firstPosition = parent.getChildAdapterPosition(firstChild);
+        SectionIndex<K, V> index = adapter.getSectionIndex();
+        if(firstPosition == RecyclerView.NO_POSITION || firstPosition >= index.getRowCount())
+            return;
+
+        int section = index.getSectionForPosition(firstPosition);
+        View headerView = getHeaderView(parent, index, section);
+
+        int top = 0;
+        if(section + 1 < index.getSectionCount()) {
+            View nextHeader = findChildAt(parent, firstPosition, index.getPositionForSection(section + 1));
+            if(nextHeader != null && nextHeader.getTop() < headerView.getHeight())
+                top = nextHeader.getTop() - headerView.getHeight();
+        }
+
+        int saveCount = canvas.save();
+        canvas.translate(parent.getPaddingLeft(), top);
+        headerView.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * @return The bound and measured header view of the given section.
+     */
+    private View getHeaderView(RecyclerView parent, SectionIndex<K, V> index, int section) {
+        int position = index.getPositionForSection(section);
+        int type = index.getRowType(position);
+
+        Header<K, V, VH> header = headers.get(type);
+        if(header == null) {
+            header = new Header<>(adapter.createViewHolder(parent, type));
+            headers.put(type, header);
+        }
+
+        boolean rebound = false;
+        if(header.section != section || header.index != index || header.modificationCount != index.getModificationCount()) {
+            adapter.bindViewHolder(header.holder, position);
+            header.section = section;
+            header.index = index;
+            header.modificationCount = index.getModificationCount();
+            rebound = true;
+        }
+
+        View view = ((RecyclerView.ViewHolder) header.holder).itemView;
+        int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+        if(rebound || header.width != width) {
+            measure(view, width);
+            header.width = width;
+        }
+
+        return view;
+    }
+
+    private static void measure(View view, int width) {
+        ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+        int heightSpec = layoutParams != null && layoutParams.height > 0
+                ? View.MeasureSpec.makeMeasureSpec(layoutParams.height, View.MeasureSpec.EXACTLY)
+                : View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY), heightSpec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+
+    /**
+     * @return The visible child at the given adapter position or null.
+     */
+    private static View findChildAt(RecyclerView parent, int firstPosition, int position) {
+        int childIndex = position - firstPosition;
+        if(childIndex < parent.getChildCount()) {
+            View child = parent.getChildAt(childIndex);
+            if(parent.getChildAdapterPosition(child) == position)
+                return child;
+        }
+
+        // The children are not laid out consecutively (e.g. during animations), so they are searched.
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            if(parent.getChildAdapterPosition(child) == position)
+                return child;
+        }
+
+        return null;
+    }
+
+    /**
+     * Drops the cached header views, e.g. after the header layouts changed.
+     */
+    public void invalidateHeaders() {
+        headers.clear();
+    }
+}
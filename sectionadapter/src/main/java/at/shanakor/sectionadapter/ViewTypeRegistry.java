@@ -0,0 +1,128 @@
+package at.shanakor.sectionadapter;
+
+import java.util.Arrays;
+
+/**
+ * Additional section and child view types, e.g. for pinned and normal contacts.
+ * Every type is chosen by a {@link Matcher}, the first matching type of a row wins and rows without a matching type
+ * keep the default {@link SectionIndex#TYPE_SECTION} respectively {@link SectionIndex#TYPE_CHILD}.
+ * The registered types are numbered from {@link #FIRST_CUSTOM_TYPE} on. The types of all rows are resolved once
+ * when the rows are flattened and stored in the row type table of the {@link SectionIndex}.
+ * <p>
+ * Types are registered on the main thread. Registering replaces the array of types, so a running background load
+ * sees either the old or the new types.
+ */
+public class ViewTypeRegistry<K, V> {
+    /**
+     * The first type which is assigned to a registered type.
+     */
+    public static final int FIRST_CUSTOM_TYPE = SectionIndex.TYPE_CHILD_DIVIDER + 1;
+
+    /**
+     * Determines whether an item is displayed using a registered view type.
+     */
+    public interface Matcher<T> {
+        boolean matches(T item);
+    }
+
+    private volatile Registration[] sectionTypes = new Registration[0];
+    private volatile Registration[] childTypes = new Registration[0];
+    private int typeCount = FIRST_CUSTOM_TYPE;
+
+    /**
+     * @return The new view type.
+     */
+    public int registerSectionType(Matcher<K> matcher) {
+        if(matcher == null)
+            throw new IllegalArgumentException("The parameter 'matcher' can not be null!");
+
+        Registration registration = new Registration(matcher, nextType());
+        sectionTypes = append(sectionTypes, registration);
+        return registration.type;
+    }
+
+    /**
+     * @return The new view type.
+     */
+    public int registerChildType(Matcher<V> matcher) {
+        if(matcher == null)
+            throw new IllegalArgumentException("The parameter 'matcher' can not be null!");
+
+        Registration registration = new Registration(matcher, nextType());
+        childTypes = append(childTypes, registration);
+        return registration.type;
+    }
+
+    /**
+     * @return The number of view types including the three default ones.
+     */
+    public int getViewTypeCount() {
+        return typeCount;
+    }
+
+    /**
+     * @return Whether the given type is {@link SectionIndex#TYPE_SECTION} or a registered section type.
+     */
+    public boolean isSectionType(int type) {
+        if(type == SectionIndex.TYPE_SECTION)
+            return true;
+
+        for (Registration registration : sectionTypes) {
+            if(registration.type == type)
+                return true;
+        }
+
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    byte resolveSectionType(K key) {
+        for (Registration registration : sectionTypes) {
+            if(((Matcher<K>) registration.matcher).matches(key))
+                return registration.type;
+        }
+
+        return SectionIndex.TYPE_SECTION;
+    }
+
+    @SuppressWarnings("unchecked")
+    byte resolveChildType(V value) {
+        for (Registration registration : childTypes) {
+            if(((Matcher<V>) registration.matcher).matches(value))
+                return registration.type;
+        }
+
+        return SectionIndex.TYPE_CHILD;
+    }
+
+    boolean hasSectionTypes() {
+        return sectionTypes.length > 0;
+    }
+
+    boolean hasChildTypes() {
+        return childTypes.length > 0;
+    }
+
+    private byte nextType() {
+        if(typeCount > Byte.MAX_VALUE)
+            throw new IllegalStateException("Can not register more than " + (Byte.MAX_VALUE + 1 - FIRST_CUSTOM_TYPE) + " view types!");
+
+        return (byte) typeCount++;
+    }
+
+    private static Registration[] append(Registration[] registrations, Registration registration) {
+        Registration[] result = Arrays.copyOf(registrations, registrations.length + 1);
+        result[registrations.length] = registration;
+        return result;
+    }
+
+    private static final class Registration {
+        final Matcher<?> matcher;
+        final byte type;
+
+        Registration(Matcher<?> matcher, byte type) {
+            this.matcher = matcher;
+            this.type = type;
+        }
+    }
+}
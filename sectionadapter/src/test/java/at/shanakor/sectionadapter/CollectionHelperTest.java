@@ -0,0 +1,274 @@
+package at.shanakor.sectionadapter;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class CollectionHelperTest {
+    private static final String[] KEYS = {"A", "B", "C", "D", "E", "F", "G", "H"};
+
+    private static final Grouper<String, Integer> GROUPER = new Grouper<String, Integer>() {
+        @Override
+        public String getGroupFrom(Integer value) {
+            return KEYS[value % KEYS.length];
+        }
+    };
+
+    private static final Comparator<Integer> DESCENDING = new Comparator<Integer>() {
+        @Override
+        public int compare(Integer lhs, Integer rhs) {
+            return rhs.compareTo(lhs);
+        }
+    };
+
+    private static final GroupSorter<String, Integer, String> REVERSED_GROUPS = new GroupSorter<String, Integer, String>() {
+        @Override
+        public Grouper<String, Integer> getSortableGrouper() {
+            return GROUPER;
+        }
+
+        @Override
+        public Comparator<Map.Entry<String, List<Integer>>> getComparator() {
+            return new Comparator<Map.Entry<String, List<Integer>>>() {
+                @Override
+                public int compare(Map.Entry<String, List<Integer>> lhs, Map.Entry<String, List<Integer>> rhs) {
+                    return rhs.getKey().compareTo(lhs.getKey());
+                }
+            };
+        }
+
+        @Override
+        public String getKeyDisplayFromKey(String key) {
+            return key.toLowerCase();
+        }
+    };
+
+    private static List<Integer> createValues(int count) {
+        List<Integer> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            values.add(i);
+
+        return values;
+    }
+
+    @Test
+    public void groupsSortsAndLeavesInputUntouched() throws Exception {
+        List<Integer> values = Arrays.asList(3, 9, 1, 8, 11, 0);
+        List<Integer> copy = new ArrayList<>(values);
+
+        LinkedHashMap<String, List<Integer>> grouped = CollectionHelper.groupKeysByValue(values, GROUPER, DESCENDING);
+        assertEquals(Arrays.asList("D", "B", "A"), new ArrayList<>(grouped.keySet()));
+        assertEquals(Arrays.asList(11, 3), grouped.get("D"));
+        assertEquals(Arrays.asList(9, 1), grouped.get("B"));
+        assertEquals(Arrays.asList(8, 0), grouped.get("A"));
+
+        LinkedHashMap<String, List<Integer>> display = CollectionHelper.groupKeysByValue(values, GROUPER, DESCENDING, REVERSED_GROUPS);
+        assertEquals(Arrays.asList("d", "b", "a"), new ArrayList<>(display.keySet()));
+        assertEquals(Arrays.asList(9, 1), display.get("b"));
+
+        assertEquals(copy, values);
+    }
+
+    @Test
+    public void groupingAllocatesLittleMoreThanTheResult() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+        int count = 200000;
+        List<Integer> values = createValues(count);
+        CollectionHelper.groupKeysByValue(values, GROUPER);
+
+        long baseline = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++)
+            baseline = Math.min(baseline, allocatedByBaseline(threadMXBean, values));
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        LinkedHashMap<String, List<Integer>> grouped = CollectionHelper.groupKeysByValue(values, GROUPER);
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(KEYS.length, grouped.size());
+        // One ordinal and one exactly sized list slot per value like the baseline, whatever the size of a reference is.
+        // The old growing lists needed about twice as much.
+        assertTrue("Allocated " + allocated + " bytes, the baseline " + baseline, allocated < baseline * 5 / 4 + 64 * 1024);
+    }
+
+    /**
+     * @return The bytes allocated by an ordinal per value and an exactly sized list of all values.
+     */
+    private static long allocatedByBaseline(com.sun.management.ThreadMXBean threadMXBean, List<Integer> values) {
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+
+        int[] ordinals = new int[values.size()];
+        List<Integer> list = new ArrayList<>(values.size());
+        for (Integer value : values) {
+            ordinals[list.size()] = value;
+            list.add(value);
+        }
+
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+        assertEquals(ordinals.length, list.size());
+        return allocated;
+    }
+
+    @Test
+    public void parallelGroupingMatchesSequential() throws Exception {
+        final Comparator<Integer> byTens = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return Integer.valueOf(lhs / 10).compareTo(rhs / 10);
+            }
+        };
+        Grouper<Integer, Integer> bySeven = new Grouper<Integer, Integer>() {
+            @Override
+            public Integer getGroupFrom(Integer value) {
+                return value % 7;
+            }
+        };
+
+        Random random = new Random(42);
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 5000; i++)
+            values.add(random.nextInt(2000));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            LinkedHashMap<Integer, List<Integer>> sequential = CollectionHelper.groupKeysByValue(values, bySeven, byTens);
+            for (int chunkCount = 2; chunkCount <= 5; chunkCount++) {
+                LinkedHashMap<Integer, List<Integer>> parallel = ParallelGrouping.group(values, bySeven, byTens, executor, chunkCount).toMap();
+
+                assertEquals(new ArrayList<>(sequential.keySet()), new ArrayList<>(parallel.keySet()));
+                assertEquals(new ArrayList<>(sequential.values()), new ArrayList<>(parallel.values()));
+            }
+
+            assertEquals(CollectionHelper.groupKeysByValue(values, GROUPER, DESCENDING, REVERSED_GROUPS),
+                    CollectionHelper.groupKeysByValue(values, GROUPER, DESCENDING, REVERSED_GROUPS, executor, 0));
+        }
+        finally {
+            executor.shutdown();
+        }
+        // An executor which never gets to run the chunks, like a serial one running the caller, must not deadlock.
+        Executor blocked = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+            }
+        };
+        LinkedHashMap<Integer, List<Integer>> parallel = ParallelGrouping.group(values, bySeven, byTens, blocked, 4).toMap();
+        assertEquals(new ArrayList<>(CollectionHelper.groupKeysByValue(values, bySeven, byTens).values()), new ArrayList<>(parallel.values()));
+    }
+
+    @Test
+    public void groupsByLevelsIntoOneFlatIndex() throws Exception {
+        Grouper<Integer, Integer> byHundreds = new Grouper<Integer, Integer>() {
+            @Override
+            public Integer getGroupFrom(Integer value) {
+                return value / 100;
+            }
+        };
+        List<GroupLevel<Integer>> levels = Arrays.asList(GroupLevel.of(byHundreds), GroupLevel.of(REVERSED_GROUPS));
+
+        List<Integer> values = Arrays.asList(101, 3, 109, 8, 0, 111);
+        LinkedHashMap<SectionPath, List<Integer>> grouped = CollectionHelper.groupKeysByLevels(values, null, levels);
+
+        // The hundreds keep their order, the groups below them are sorted in reverse.
+        assertEquals("[1, h, f, 0, d, a]", grouped.keySet().toString());
+        List<SectionPath> paths = new ArrayList<>(grouped.keySet());
+        assertTrue(grouped.get(paths.get(0)).isEmpty());
+        assertEquals(Arrays.asList(101, 109), grouped.get(paths.get(2)));
+        assertEquals(Arrays.asList(8, 0), grouped.get(paths.get(5)));
+        assertEquals(0, paths.get(5).getKey(0));
+        assertEquals(1, paths.get(2).getDepth());
+
+        SectionIndex<SectionPath, Integer> index = new SectionIndex<>(grouped, false);
+        assertEquals(0, index.getSectionDepth(0));
+        assertEquals(1, index.getSectionDepth(2));
+        assertEquals(2, index.getSectionForPosition(4));
+        assertEquals(12, index.getRowCount());
+    }
+
+    @Test
+    public void groupsByPrimitiveKeysLikeBoxedKeys() throws Exception {
+        List<String> values = Arrays.asList("Carl", "anna", "Bernd", "Axel", "Clara", "Arnold");
+        Comparator<String> ignoringCase = String.CASE_INSENSITIVE_ORDER;
+
+        PrimitiveGroupedData<Character, String> primitive = CollectionHelper.groupCharKeysByValue(values, new CharGrouper<String>() {
+            @Override
+            public char getGroupFrom(String value) {
+                return Character.toUpperCase(value.charAt(0));
+            }
+        }, ignoringCase);
+        LinkedHashMap<Character, List<String>> boxed = CollectionHelper.groupKeysByValue(values, new Grouper<Character, String>() {
+            @Override
+            public Character getGroupFrom(String value) {
+                return Character.toUpperCase(value.charAt(0));
+            }
+        }, ignoringCase);
+
+        assertEquals(boxed, primitive.toGroupedData());
+        assertEquals(1, primitive.indexOfKey('B'));
+        assertEquals(-1, primitive.indexOfKey('D'));
+
+        SectionIndex<Character, String> index = new SectionIndex<>(primitive, false, null);
+        assertEquals(new SectionIndex<>(boxed, false).getRowCount(), index.getRowCount());
+        assertEquals('C', (char) index.getSectionKey(2));
+        assertEquals("Clara", index.getItem(8));
+        assertEquals(boxed, index.getGroupedData());
+    }
+
+    @Test
+    public void sortsByCachedCollationKeys() throws Exception {
+        final Collator collator = Collator.getInstance(Locale.GERMAN);
+        Comparator<String> collating = new Comparator<String>() {
+            @Override
+            public int compare(String lhs, String rhs) {
+                return collator.compare(lhs, rhs);
+            }
+        };
+        CollationKeyCache.TextExtractor<String> identity = new CollationKeyCache.TextExtractor<String>() {
+            @Override
+            public String getText(String item) {
+                return item;
+            }
+        };
+        CollationKeyCache<String> valueKeys = new CollationKeyCache<>(collator, identity);
+        CollationKeyCache<String> groupKeys = new CollationKeyCache<>(collator, identity);
+        Grouper<String, String> byInitial = new Grouper<String, String>() {
+            @Override
+            public String getGroupFrom(String value) {
+                return value.substring(0, 1).toUpperCase();
+            }
+        };
+
+        List<String> values = Arrays.asList("zoe", "\u00c4rger", "bernd", "anna", "Zack", "Berta");
+        LinkedHashMap<String, List<String>> grouped = CollectionHelper.groupKeysByValue(values, byInitial, valueKeys, groupKeys);
+        LinkedHashMap<String, List<String>> expected = CollectionHelper.groupKeysByValue(values, byInitial, collating);
+        expected = CollectionHelper.sortGroupedDataByKeys(expected, groupKeys.<List<String>>entryComparator());
+
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(grouped.keySet()));
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(grouped.values()));
+        assertEquals("[A, \u00c4, B, Z]", grouped.keySet().toString());
+
+        // Keys of values which are not displayed anymore are dropped by the second sweep.
+        valueKeys.sweep();
+        CollectionHelper.groupKeysByValue(values.subList(0, 3), byInitial, valueKeys, null);
+        valueKeys.sweep();
+        assertEquals(3, valueKeys.size());
+    }
+}
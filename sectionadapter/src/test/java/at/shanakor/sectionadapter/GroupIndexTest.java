@@ -0,0 +1,111 @@
+package at.shanakor.sectionadapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class GroupIndexTest {
+    private static final Comparator<Integer> BY_TENS = new Comparator<Integer>() {
+        @Override
+        public int compare(Integer lhs, Integer rhs) {
+            return Integer.valueOf(lhs / 10).compareTo(rhs / 10);
+        }
+    };
+
+    private static final GroupSorter<Integer, Integer, String> BY_HUNDREDS = new GroupSorter<Integer, Integer, String>() {
+        @Override
+        public Grouper<Integer, Integer> getSortableGrouper() {
+            return new Grouper<Integer, Integer>() {
+                @Override
+                public Integer getGroupFrom(Integer value) {
+                    return value / 100;
+                }
+            };
+        }
+
+        @Override
+        public Comparator<Map.Entry<Integer, List<Integer>>> getComparator() {
+            return new Comparator<Map.Entry<Integer, List<Integer>>>() {
+                @Override
+                public int compare(Map.Entry<Integer, List<Integer>> lhs, Map.Entry<Integer, List<Integer>> rhs) {
+                    return lhs.getKey().compareTo(rhs.getKey());
+                }
+            };
+        }
+
+        @Override
+        public String getKeyDisplayFromKey(Integer key) {
+            return key + "xx";
+        }
+    };
+
+    @Test
+    public void batchesMatchFullRegroupAndAreReported() throws Exception {
+        final List<String> events = new ArrayList<>();
+        final List<Runnable> reports = new ArrayList<>();
+        GroupIndex<Integer, Integer, String> groupIndex = new GroupIndex<>(BY_TENS, BY_HUNDREDS, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                reports.add(command);
+            }
+        });
+        groupIndex.setListener(new GroupIndex.Listener<String, Integer>() {
+            @Override
+            public void onSectionInserted(int section, String key, Integer value) {
+                events.add("section " + section);
+            }
+
+            @Override
+            public void onChildInserted(int section, int positionInSection, Integer value) {
+                events.add("child " + section + " " + positionInSection);
+            }
+        });
+
+        groupIndex.add(250);
+        groupIndex.add(120);
+        groupIndex.add(129);
+        groupIndex.add(111);
+
+        // The data only contains the reported insertions, so the reported positions apply to it.
+        assertTrue(events.isEmpty());
+        assertTrue(groupIndex.getData().isEmpty());
+        reports.remove(0).run();
+        reports.remove(0).run();
+        assertEquals("[1xx, 2xx]", groupIndex.getData().keySet().toString());
+        assertEquals(Arrays.asList(120), groupIndex.getData().get("1xx"));
+        while (!reports.isEmpty())
+            reports.remove(0).run();
+        assertEquals("[section 0, section 0, child 0 1, child 0 0]", events.toString());
+        assertEquals(Arrays.asList(111, 120, 129), groupIndex.getData().get("1xx"));
+
+        Random random = new Random(7);
+        List<Integer> values = new ArrayList<>();
+        values.add(250);
+        values.add(120);
+        values.add(129);
+        values.add(111);
+        for (int batch = 0; batch < 10; batch++) {
+            List<Integer> batchValues = new ArrayList<>();
+            for (int i = 0; i < 50; i++)
+                batchValues.add(random.nextInt(1000));
+
+            groupIndex.addAll(batchValues);
+            values.addAll(batchValues);
+            while (!reports.isEmpty())
+                reports.remove(0).run();
+
+            LinkedHashMap<String, List<Integer>> expected = CollectionHelper.groupKeysByValue(values, null, BY_TENS, BY_HUNDREDS);
+            assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(groupIndex.getData().entrySet()));
+        }
+        assertEquals(values.size(), groupIndex.getValueCount());
+    }
+}
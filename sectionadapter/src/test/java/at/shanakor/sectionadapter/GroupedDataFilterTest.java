@@ -0,0 +1,62 @@
+package at.shanakor.sectionadapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GroupedDataFilterTest {
+    private static final class CountingMatcher implements GroupedDataFilter.Matcher<String> {
+        int calls = 0;
+
+        @Override
+        public boolean matches(String value, String query) {
+            calls++;
+            return value.toLowerCase().contains(query);
+        }
+    }
+
+    @Test
+    public void narrowsThePreviousResultAndDropsEmptySections() throws Exception {
+        final LinkedHashMap<String, List<String>> groupedData = new LinkedHashMap<>();
+        groupedData.put("A", Arrays.asList("Anna", "Arnold", "Axel"));
+        groupedData.put("B", Arrays.asList("Bernd"));
+        groupedData.put("C", Arrays.asList("Carl", "Carla"));
+
+        CountingMatcher matcher = new CountingMatcher();
+        GroupedDataFilter<String, String> filter = new GroupedDataFilter<>(new GroupedDataProvider<String, String>() {
+            @Override
+            public LinkedHashMap<String, List<String>> getData() {
+                return groupedData;
+            }
+        }, matcher);
+
+        assertSame(groupedData, filter.getData());
+
+        filter.setQuery("a");
+        LinkedHashMap<String, List<String>> result = filter.getData();
+        assertEquals(Arrays.asList("A", "C"), new ArrayList<>(result.keySet()));
+        assertSame(groupedData.get("A"), result.get("A"));
+        assertEquals(6, matcher.calls);
+
+        // Only the five remaining children are checked again.
+        filter.setQuery("arl");
+        result = filter.getData();
+        assertEquals(Arrays.asList("C"), new ArrayList<>(result.keySet()));
+        assertEquals(Arrays.asList("Carl", "Carla"), result.get("C"));
+        assertEquals(11, matcher.calls);
+
+        filter.setQuery("ar");
+        assertEquals(Arrays.asList("Arnold"), filter.getData().get("A"));
+        assertEquals(17, matcher.calls);
+
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        filter.setQuery("x");
+        assertNull(filter.getData(token));
+    }
+}
@@ -0,0 +1,163 @@
+package at.shanakor.sectionadapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class PagedGroupedDataProviderTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Collects the page loads, which are run by {@link #runAll()}.
+     */
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            while (!queue.isEmpty())
+                queue.remove(0).run();
+        }
+    }
+
+    /**
+     * Sections "A" with 25 and "B" with 30 children, every child is its global position.
+     */
+    private static class Source implements PagedGroupedDataSource<String, Integer> {
+        final List<Integer> loadedPages = new ArrayList<>();
+        int failures = 0;
+
+        @Override
+        public LinkedHashMap<String, Integer> getSectionSizes() {
+            LinkedHashMap<String, Integer> sizes = new LinkedHashMap<>();
+            sizes.put("A", 25);
+            sizes.put("B", 30);
+            return sizes;
+        }
+
+        @Override
+        public List<Integer> loadPage(int globalChildPosition, int count) {
+            if(failures > 0) {
+                failures--;
+                throw new IllegalStateException("Page " + globalChildPosition);
+            }
+
+            loadedPages.add(globalChildPosition);
+            List<Integer> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                values.add(globalChildPosition + i);
+
+            return values;
+        }
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedPages() throws Exception {
+        Source source = new Source();
+        QueueExecutor loadExecutor = new QueueExecutor();
+        PagedGroupedDataProvider<String, Integer> provider = new PagedGroupedDataProvider<>(source, 10, 20, 0, loadExecutor, DIRECT);
+        final List<int[]> loaded = new ArrayList<>();
+        provider.setOnPageLoadedListener(new PagedGroupedDataProvider.OnPageLoadedListener() {
+            @Override
+            public void onPageLoaded(int globalChildPosition, int count) {
+                loaded.add(new int[]{globalChildPosition, count});
+            }
+        });
+        LinkedHashMap<String, List<Integer>> groupedData = provider.getData();
+
+        assertNull(groupedData.get("A").get(3));
+        assertNull(groupedData.get("A").get(4));
+        loadExecutor.runAll();
+        assertEquals(Arrays.asList(0), source.loadedPages);
+        assertArrayEquals(new int[]{0, 10}, loaded.get(0));
+        assertEquals(Integer.valueOf(3), groupedData.get("A").get(3));
+
+        // The last page of "A" is shared with "B" and the last page overall is short.
+        assertNull(groupedData.get("B").get(0));
+        assertNull(groupedData.get("B").get(29));
+        loadExecutor.runAll();
+        assertArrayEquals(new int[]{50, 5}, loaded.get(2));
+        assertEquals(Integer.valueOf(54), groupedData.get("B").get(29));
+
+        // Page 0 has been evicted by page 5, page 2 is still cached.
+        assertEquals(Integer.valueOf(25), groupedData.get("B").get(0));
+        assertNull(groupedData.get("A").get(0));
+        loadExecutor.runAll();
+        assertEquals(Arrays.asList(0, 20, 50, 0), source.loadedPages);
+    }
+
+    @Test
+    public void prefetchesInScrollDirection() throws Exception {
+        Source source = new Source();
+        QueueExecutor loadExecutor = new QueueExecutor();
+        PagedGroupedDataProvider<String, Integer> provider = new PagedGroupedDataProvider<>(source, 10, 100, 2, loadExecutor, DIRECT);
+        LinkedHashMap<String, List<Integer>> groupedData = provider.getData();
+
+        groupedData.get("B").get(5);
+        loadExecutor.runAll();
+        assertEquals(Arrays.asList(30, 40, 50), source.loadedPages);
+
+        groupedData.get("A").get(15);
+        loadExecutor.runAll();
+        assertEquals(Arrays.asList(30, 40, 50, 10, 0), source.loadedPages);
+    }
+
+    @Test
+    public void discardsPagesOfAStaleWindow() throws Exception {
+        Source source = new Source();
+        QueueExecutor loadExecutor = new QueueExecutor();
+        PagedGroupedDataProvider<String, Integer> provider = new PagedGroupedDataProvider<>(source, 10, 100, 0, loadExecutor, DIRECT);
+        final List<int[]> loaded = new ArrayList<>();
+        provider.setOnPageLoadedListener(new PagedGroupedDataProvider.OnPageLoadedListener() {
+            @Override
+            public void onPageLoaded(int globalChildPosition, int count) {
+                loaded.add(new int[]{globalChildPosition, count});
+            }
+        });
+
+        LinkedHashMap<String, List<Integer>> staleData = provider.getData();
+        assertNull(staleData.get("A").get(0));
+        LinkedHashMap<String, List<Integer>> groupedData = provider.getData();
+        loadExecutor.runAll();
+
+        assertTrue(loaded.isEmpty());
+        assertNull(staleData.get("A").get(0));
+        assertNull(groupedData.get("A").get(0));
+    }
+
+    @Test
+    public void retriesAFailedPage() throws Exception {
+        Source source = new Source();
+        source.failures = 1;
+        QueueExecutor loadExecutor = new QueueExecutor();
+        PagedGroupedDataProvider<String, Integer> provider = new PagedGroupedDataProvider<>(source, 10, 100, 0, loadExecutor, DIRECT);
+        LinkedHashMap<String, List<Integer>> groupedData = provider.getData();
+
+        assertNull(groupedData.get("A").get(0));
+        try {
+            loadExecutor.runAll();
+            fail("The exception of the data source has to reach the load executor.");
+        }
+        catch (IllegalStateException expected) {
+        }
+
+        assertNull(groupedData.get("A").get(0));
+        loadExecutor.runAll();
+        assertEquals(Integer.valueOf(0), groupedData.get("A").get(0));
+    }
+}
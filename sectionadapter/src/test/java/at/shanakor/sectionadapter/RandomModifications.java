@@ -0,0 +1,111 @@
+package at.shanakor.sectionadapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Applies random child and section modifications to a {@link SectionIndex}. The tests keep their own state up to date via
+ * the hooks and check it in {@link #afterModification(int)}. The last section is never removed.
+ */
+abstract class RandomModifications<V> {
+    final Random random;
+    final SectionIndex<String, V> index;
+    private final RowUpdateCallback callback;
+
+    /**
+     * @param callback Receives the row updates of the modifications or null.
+     */
+    RandomModifications(long seed, SectionIndex<String, V> index, RowUpdateCallback callback) {
+        this.random = new Random(seed);
+        this.index = index;
+        this.callback = callback;
+    }
+
+    void run(int steps) {
+        for (int step = 0; step < steps; step++) {
+            modify(step);
+            afterModification(step);
+        }
+    }
+
+    private void modify(int step) {
+        int section = random.nextInt(index.getSectionCount());
+        int children = index.getChildCount(section);
+
+        switch (random.nextInt(6)) {
+            case 0:
+                int position = random.nextInt(children + 1);
+                index.insertChild(section, position, newValue(step), callback);
+                onChildInserted(section, position);
+                break;
+            case 1:
+                if(children > 0) {
+                    position = random.nextInt(children);
+                    onChildRemoved(section, position, index.removeChild(section, position, callback));
+                }
+                break;
+            case 2:
+                if(children > 0) {
+                    position = random.nextInt(children);
+                    V value = newValue(step);
+                    onChildSet(index.setChild(section, position, value, callback, null), value);
+                }
+                break;
+            case 3:
+                int toSection = random.nextInt(index.getSectionCount());
+                if(children > 0 && (toSection != section || children > 1)) {
+                    int fromPosition = random.nextInt(children);
+                    int toPosition = random.nextInt(index.getChildCount(toSection) + (toSection == section ? 0 : 1));
+                    int fromGlobalChildPosition = index.getGlobalChildPositionForSection(section) + fromPosition;
+                    index.moveChild(section, fromPosition, toSection, toPosition, callback);
+                    onChildMoved(section, fromGlobalChildPosition, toSection, toPosition);
+                }
+                break;
+            case 4:
+                List<V> values = new ArrayList<>();
+                values.add(newValue(step));
+                values.add(newValue(step));
+                index.insertSection(section, "S" + step, values, callback);
+                onSectionInserted(section, values.size());
+                break;
+            default:
+                if(index.getSectionCount() > 1) {
+                    int globalChildPosition = index.getGlobalChildPositionForSection(section);
+                    List<V> removed = new ArrayList<>(index.getSectionValues(section));
+                    index.removeSection(section, callback);
+                    onSectionRemoved(section, globalChildPosition, removed);
+                }
+        }
+    }
+
+    /**
+     * @return A child for an insertion or replacement of the given step.
+     */
+    abstract V newValue(int step);
+
+    /**
+     * Is called after every step, which may have left the index unchanged.
+     */
+    abstract void afterModification(int step);
+
+    //region Hooks
+    void onChildInserted(int section, int positionInSection) {
+    }
+
+    void onChildRemoved(int section, int positionInSection, V value) {
+    }
+
+    void onChildSet(V oldValue, V newValue) {
+    }
+
+    void onChildMoved(int fromSection, int fromGlobalChildPosition, int toSection, int toPosition) {
+    }
+
+    void onSectionInserted(int section, int childCount) {
+    }
+
+    void onSectionRemoved(int section, int globalChildPosition, List<V> values) {
+    }
+    //endregion
+}
@@ -0,0 +1,212 @@
+package at.shanakor.sectionadapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SectionDiffTest {
+    /**
+     * Children are "name:version", the name identifies a child and the version is its content.
+     */
+    private static final SectionDiffCallback<String> CALLBACK = new SectionDiffCallback<String>() {
+        @Override
+        public boolean areItemsTheSame(String oldValue, String newValue) {
+            return oldValue.split(":")[0].equals(newValue.split(":")[0]);
+        }
+
+        @Override
+        public boolean areContentsTheSame(String oldValue, String newValue) {
+            return oldValue.equals(newValue);
+        }
+    };
+
+    /**
+     * Applies the row updates to stand-ins of the rows. Inserted and changed rows become "?".
+     */
+    private static class RowStandIns implements RowUpdateCallback {
+        final List<Object> rows;
+
+        RowStandIns(SectionIndex<String, String> index) {
+            rows = rowsOf(index);
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            for (int i = 0; i < count; i++)
+                rows.add(position + i, "?");
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            for (int i = 0; i < count; i++)
+                rows.remove(position);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            rows.add(toPosition, rows.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            for (int i = 0; i < count; i++)
+                rows.set(position + i, "?");
+        }
+
+        /**
+         * Every row which has not been inserted or changed has to be in its place already.
+         */
+        void assertMatches(SectionIndex<String, String> index) {
+            List<Object> expected = rowsOf(index);
+            assertEquals(expected.size(), rows.size());
+            for (int row = 0; row < rows.size(); row++) {
+                if("?".equals(rows.get(row)))
+                    rows.set(row, expected.get(row));
+            }
+
+            assertEquals(expected, rows);
+        }
+    }
+
+    @Test
+    public void movesRemovesAndInsertsSections() throws Exception {
+        for (boolean useCustomChildDividers : new boolean[]{false, true}) {
+            List<String> unchanged = Arrays.asList("e1:0", "e2:0");
+            LinkedHashMap<String, List<String>> oldData = new LinkedHashMap<>();
+            oldData.put("A", Arrays.asList("a1:0", "a2:0", "a3:0"));
+            oldData.put("B", Arrays.asList("b1:0"));
+            oldData.put("C", Collections.<String>emptyList());
+            oldData.put("D", Arrays.asList("d1:0", "d2:0"));
+            oldData.put("E", unchanged);
+
+            LinkedHashMap<String, List<String>> newData = new LinkedHashMap<>();
+            newData.put("C", Arrays.asList("c1:0"));
+            newData.put("A", Arrays.asList("a0:0", "a1:1", "a3:0"));
+            newData.put("X", Arrays.asList("x1:0", "x2:0"));
+            newData.put("E", unchanged);
+            newData.put("D", Arrays.asList("d1:0", "d2:0"));
+
+            assertDispatchMatches(oldData, newData, useCustomChildDividers);
+        }
+    }
+
+    @Test
+    public void randomDiffsMatchRebuiltIndex() throws Exception {
+        Random random = new Random(42);
+        for (boolean useCustomChildDividers : new boolean[]{false, true}) {
+            for (int i = 0; i < 200; i++)
+                assertDispatchMatches(randomData(random), randomData(random), useCustomChildDividers);
+        }
+    }
+
+    @Test
+    public void translatorKeepsDividersAlternating() throws Exception {
+        Random random = new Random(7);
+        for (boolean useCustomChildDividers : new boolean[]{false, true}) {
+            List<String> values = new ArrayList<>(Arrays.asList("v0", "v1", "v2"));
+            int next = 3;
+
+            for (int i = 0; i < 300; i++) {
+                SectionIndex<String, String> index = new SectionIndex<>(sectionData(values), useCustomChildDividers);
+                RowStandIns rows = new RowStandIns(index);
+                ChildUpdateTranslator translator = new ChildUpdateTranslator(rows, useCustomChildDividers)
+                        .forSection(index.getPositionForSection(1), values.size());
+
+                int size = values.size();
+                int position = random.nextInt(size + 1);
+                int count = 1 + random.nextInt(3);
+                switch (size == 0 ? 0 : random.nextInt(4)) {
+                    case 0:
+                        for (int j = 0; j < count; j++)
+                            values.add(position + j, "v" + next++);
+                        translator.onInserted(position, count);
+                        break;
+                    case 1:
+                        position = Math.min(position, size - 1);
+                        count = Math.min(count, size - position);
+                        values.subList(position, position + count).clear();
+                        translator.onRemoved(position, count);
+                        break;
+                    case 2:
+                        int from = random.nextInt(size);
+                        int to = random.nextInt(size);
+                        values.add(to, values.remove(from));
+                        translator.onMoved(from, to);
+                        break;
+                    default:
+                        position = Math.min(position, size - 1);
+                        count = Math.min(count, size - position);
+                        for (int j = position; j < position + count; j++)
+                            values.set(j, "v" + next++);
+                        translator.onChanged(position, count, null);
+                }
+
+                assertEquals(values.size(), translator.getChildCount());
+                rows.assertMatches(new SectionIndex<>(sectionData(values), useCustomChildDividers));
+            }
+        }
+    }
+
+    private static void assertDispatchMatches(LinkedHashMap<String, List<String>> oldData, LinkedHashMap<String, List<String>> newData,
+                                              boolean useCustomChildDividers) {
+        SectionIndex<String, String> oldIndex = new SectionIndex<>(oldData, useCustomChildDividers);
+        SectionIndex<String, String> newIndex = new SectionIndex<>(newData, useCustomChildDividers);
+
+        RowStandIns rows = new RowStandIns(oldIndex);
+        SectionDiff.calculate(oldIndex, newIndex, CALLBACK).dispatchUpdatesTo(rows);
+        rows.assertMatches(newIndex);
+    }
+
+    /**
+     * Up to 8 sections in random order, each with a random subset of up to 6 children in random order and versions.
+     */
+    private static LinkedHashMap<String, List<String>> randomData(Random random) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            if(random.nextInt(4) > 0)
+                keys.add("K" + i);
+        }
+        Collections.shuffle(keys, random);
+
+        LinkedHashMap<String, List<String>> groupedData = new LinkedHashMap<>();
+        for (String key : keys) {
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                if(random.nextBoolean())
+                    values.add(key + "c" + i + ":" + random.nextInt(2));
+            }
+            if(random.nextBoolean())
+                Collections.shuffle(values, random);
+
+            groupedData.put(key, values);
+        }
+
+        return groupedData;
+    }
+
+    /**
+     * The given values inside the middle one of three sections.
+     */
+    private static LinkedHashMap<String, List<String>> sectionData(List<String> values) {
+        LinkedHashMap<String, List<String>> groupedData = new LinkedHashMap<>();
+        groupedData.put("P", Arrays.asList("p0", "p1"));
+        groupedData.put("S", new ArrayList<>(values));
+        groupedData.put("N", Arrays.asList("n0"));
+        return groupedData;
+    }
+
+    private static List<Object> rowsOf(SectionIndex<String, String> index) {
+        List<Object> rows = new ArrayList<>();
+        for (int row = 0; row < index.getRowCount(); row++)
+            rows.add(index.getItem(row));
+
+        return rows;
+    }
+}
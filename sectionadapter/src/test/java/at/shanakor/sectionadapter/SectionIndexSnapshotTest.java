@@ -0,0 +1,79 @@
+package at.shanakor.sectionadapter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SectionIndexSnapshotTest {
+    private static final SectionIndexSnapshot.KeyCodec<String> KEYS = new SectionIndexSnapshot.KeyCodec<String>() {
+        @Override
+        public String encode(String key) {
+            return key;
+        }
+
+        @Override
+        public String decode(String encoded) {
+            return encoded;
+        }
+    };
+
+    private static final IdExtractor<Integer> IDS = new IdExtractor<Integer>() {
+        @Override
+        public long getId(Integer item) {
+            return item * 1000L;
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsAndDiscardsStaleOrCorruptFiles() throws Exception {
+        LinkedHashMap<String, List<Integer>> groupedData = new LinkedHashMap<>();
+        groupedData.put("\u00c4", Arrays.asList(1, 2, 3));
+        groupedData.put("B", new ArrayList<Integer>());
+        groupedData.put("C", Arrays.asList(4));
+
+        final List<Long> resolved = new ArrayList<>();
+        SectionIndexSnapshot.ValueResolver<Integer> resolver = new SectionIndexSnapshot.ValueResolver<Integer>() {
+            @Override
+            public Integer resolve(long id) {
+                resolved.add(id);
+                return (int) (id / 1000);
+            }
+        };
+
+        File file = new File(folder.getRoot(), "contacts.snapshot");
+        SectionIndexSnapshot.write(file, groupedData, 7, KEYS, IDS);
+
+        LinkedHashMap<String, List<Integer>> snapshot = SectionIndexSnapshot.read(file, 7, KEYS, resolver);
+        SectionIndex<String, Integer> index = new SectionIndex<>(snapshot, false);
+        assertEquals(7, index.getRowCount());
+        assertArrayEquals(new Object[]{"\u00c4", "B", "C"}, index.getSections());
+        assertTrue(resolved.isEmpty());
+
+        assertEquals(Integer.valueOf(4), index.getChild(6));
+        assertEquals(Arrays.asList(4000L), resolved);
+        assertEquals(groupedData, snapshot);
+
+        assertNull(SectionIndexSnapshot.read(file, 8, KEYS, resolver));
+        assertFalse(file.exists());
+
+        SectionIndexSnapshot.write(file, groupedData, 7, KEYS, IDS);
+        RandomAccessFile corrupt = new RandomAccessFile(file, "rw");
+        corrupt.seek(corrupt.length() - 1);
+        corrupt.write(42);
+        corrupt.close();
+        assertNull(SectionIndexSnapshot.read(file, 7, KEYS, resolver));
+        assertFalse(file.exists());
+    }
+}
@@ -0,0 +1,371 @@
+package at.shanakor.sectionadapter;
+
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SectionIndexTest {
+    private static LinkedHashMap<String, List<String>> createGroupedData() {
+        LinkedHashMap<String, List<String>> groupedData = new LinkedHashMap<>();
+        groupedData.put("A", Arrays.asList("Anna", "Arnold", "Axel"));
+        groupedData.put("B", Collections.<String>emptyList());
+        groupedData.put("C", Arrays.asList("Carl"));
+        return groupedData;
+    }
+
+    @Test
+    public void flattensWithoutDividers() throws Exception {
+        SectionIndex<String, String> index = new SectionIndex<>(createGroupedData(), false);
+
+        assertEquals(7, index.getRowCount());
+        assertEquals(4, index.getChildCount());
+        assertEquals(SectionIndex.TYPE_SECTION, index.getRowType(0));
+        assertEquals(SectionIndex.TYPE_CHILD, index.getRowType(3));
+        assertEquals("Axel", index.getItem(3));
+        assertEquals(2, index.getPositionInSection(3));
+        assertEquals("B", index.getItem(4));
+        assertEquals("Carl", index.getItem(6));
+        assertEquals(3, index.getGlobalChildPosition(6));
+    }
+
+    @Test
+    public void sectionOffsetsCountDividers() throws Exception {
+        SectionIndex<String, String> index = new SectionIndex<>(createGroupedData(), true);
+
+        // A, Anna, -, Arnold, -, Axel, B, C, Carl
+        assertEquals(9, index.getRowCount());
+        assertEquals(SectionIndex.TYPE_CHILD_DIVIDER, index.getRowType(2));
+        assertNull(index.getItem(4));
+        assertEquals("Arnold", index.getItem(3));
+        assertEquals(1, index.getGlobalChildPosition(3));
+
+        assertEquals(0, index.getPositionForSection(0));
+        assertEquals(6, index.getPositionForSection(1));
+        assertEquals(7, index.getPositionForSection(2));
+
+        assertEquals(0, index.getSectionForPosition(5));
+        assertEquals(1, index.getSectionForPosition(6));
+        assertEquals(2, index.getSectionForPosition(8));
+        assertArrayEquals(new Object[]{"A", "B", "C"}, index.getSections());
+    }
+
+    @Test
+    public void modificationsMatchRebuiltIndex() throws Exception {
+        for (final boolean useCustomChildDividers : new boolean[]{false, true}) {
+            LinkedHashMap<String, List<String>> original = createGroupedData();
+            final SectionIndex<String, String> index = new SectionIndex<>(original, useCustomChildDividers);
+            final List<Object> rows = rowsOf(index);
+
+            RowUpdateCallback callback = new RowUpdateCallback() {
+                @Override
+                public void onInserted(int position, int count) {
+                    for (int i = 0; i < count; i++)
+                        rows.add(position + i, "?");
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    for (int i = 0; i < count; i++)
+                        rows.remove(position);
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    rows.add(toPosition, rows.remove(fromPosition));
+                }
+
+                @Override
+                public void onChanged(int position, int count, Object payload) {
+                    for (int i = 0; i < count; i++)
+                        rows.set(position + i, "?");
+                }
+            };
+
+            new RandomModifications<String>(42, index, callback) {
+                @Override
+                String newValue(int step) {
+                    return "v" + step;
+                }
+
+                @Override
+                void afterModification(int step) {
+                    SectionIndex<String, String> rebuilt = new SectionIndex<>(index.getGroupedData(), useCustomChildDividers);
+                    List<Object> expected = rowsOf(rebuilt);
+                    for (int row = 0; row < rows.size(); row++) {
+                        if("?".equals(rows.get(row)))
+                            rows.set(row, expected.get(row));
+                    }
+
+                    assertEquals(expected, rows);
+                    assertEquals(expected, rowsOf(index));
+                    for (int row = 0; row < rebuilt.getRowCount(); row++) {
+                        assertEquals(rebuilt.getRowType(row), index.getRowType(row));
+                        assertEquals(rebuilt.getSectionForPosition(row), index.getSectionForPosition(row));
+                        if(rebuilt.getRowType(row) == SectionIndex.TYPE_CHILD)
+                            assertEquals(rebuilt.getGlobalChildPosition(row), index.getGlobalChildPosition(row));
+                    }
+                }
+            }.run(500);
+
+            assertEquals(createGroupedData(), original);
+        }
+    }
+
+    private static List<Object> rowsOf(SectionIndex<String, String> index) {
+        List<Object> rows = new ArrayList<>();
+        for (int row = 0; row < index.getRowCount(); row++)
+            rows.add(index.getItem(row));
+
+        return rows;
+    }
+
+    @Test
+    public void groupedDataStaysUnchanged() throws Exception {
+        SectionIndex<String, String> index = new SectionIndex<>(createGroupedData(), false);
+        index.insertChild(0, 0, "Aaron", null);
+        LinkedHashMap<String, List<String>> groupedData = index.getGroupedData();
+        assertSame(groupedData.get("A"), index.getGroupedData().get("A"));
+
+        index.removeChild(0, 1, null);
+        index.insertChild(0, 1, "Abel", null);
+        assertEquals(Arrays.asList("Aaron", "Anna", "Arnold", "Axel"), groupedData.get("A"));
+        assertEquals(Arrays.asList("Aaron", "Abel", "Arnold", "Axel"), index.getGroupedData().get("A"));
+        assertSame(groupedData.get("C"), index.getGroupedData().get("C"));
+    }
+
+    @Test
+    public void stableIdsFollowModifications() throws Exception {
+        IdExtractor<String> ids = new IdExtractor<String>() {
+            @Override
+            public long getId(String item) {
+                return item.hashCode();
+            }
+        };
+        StableIdTable<String, String> stableIds = new StableIdTable<>(ids, ids);
+        SectionIndex<String, String> index = new SectionIndex<>(createGroupedData(), true);
+
+        assertEquals(StableIdTable.childId("Arnold".hashCode()), stableIds.getId(index, 3));
+        assertEquals(StableIdTable.childDividerId("Arnold".hashCode()), stableIds.getId(index, 2));
+        assertEquals(7, stableIds.getPosition(index, StableIdTable.sectionId("C".hashCode())));
+
+        index.removeChild(0, 0, null);
+        assertEquals(1, stableIds.getPosition(index, StableIdTable.childId("Arnold".hashCode())));
+        assertEquals(-1, stableIds.getPosition(index, StableIdTable.childId("Anna".hashCode())));
+        assertEquals(StableIdTable.sectionId("C".hashCode()), stableIds.getId(index, 5));
+
+        // Later modifications refill the table from their first changed row on, which has to match a new table.
+        index.insertChild(2, 1, "Cleo", null);
+        assertEquals(8, stableIds.getPosition(index, StableIdTable.childId("Cleo".hashCode())));
+        index.collapseSection(1, null);
+        index.moveChild(2, 0, 0, 0, null);
+        index.removeSection(1, null);
+        assertEquals(-1, stableIds.getPosition(index, StableIdTable.sectionId("B".hashCode())));
+
+        StableIdTable<String, String> rebuilt = new StableIdTable<>(ids, ids);
+        for (int row = 0; row < index.getRowCount(); row++) {
+            assertEquals(rebuilt.getId(index, row), stableIds.getId(index, row));
+            assertEquals(row, stableIds.getPosition(index, stableIds.getId(index, row)));
+        }
+
+        // Keys and values are numbered independently, so a key id equals a value id and the complement of another.
+        IdExtractor<String> numbers = new IdExtractor<String>() {
+            @Override
+            public long getId(String item) {
+                return item.equals("Carl") ? ~0L : item.length() > 1 ? 0 : item.charAt(0) - 'A';
+            }
+        };
+        LinkedHashMap<String, List<String>> groupedData = new LinkedHashMap<>();
+        groupedData.put("A", Arrays.asList("Anna", "Carl"));
+        StableIdTable<String, String> colliding = new StableIdTable<>(numbers, numbers);
+        SectionIndex<String, String> collidingIndex = new SectionIndex<>(groupedData, true);
+        for (int row = 0; row < collidingIndex.getRowCount(); row++)
+            assertEquals(row, colliding.getPosition(collidingIndex, colliding.getId(collidingIndex, row)));
+    }
+
+    @Test
+    public void registeredTypesFollowModifications() throws Exception {
+        ViewTypeRegistry<String, String> registry = new ViewTypeRegistry<>();
+        int pinnedSection = registry.registerSectionType(new ViewTypeRegistry.Matcher<String>() {
+            @Override
+            public boolean matches(String item) {
+                return item.equals("C");
+            }
+        });
+        int pinnedChild = registry.registerChildType(new ViewTypeRegistry.Matcher<String>() {
+            @Override
+            public boolean matches(String item) {
+                return item.startsWith("Ar");
+            }
+        });
+
+        SectionIndex<String, String> index = new SectionIndex<>(createGroupedData(), true, registry);
+        assertEquals(pinnedChild, index.getRowType(3));
+        assertEquals(pinnedSection, index.getRowType(7));
+        assertEquals("Arnold", index.getItem(3));
+        assertEquals("C", index.getItem(7));
+
+        index.moveChild(0, 1, 0, 2, null);
+        index.insertChild(2, 0, "Arthur", null);
+        index.insertSection(1, "X", Arrays.asList("Artemis", "Xaver"), null);
+        assertEquals("Xaver", index.setChild(1, 1, "Arno", null, null));
+
+        SectionIndex<String, String> rebuilt = new SectionIndex<>(index.getGroupedData(), true, registry);
+        assertEquals(rebuilt.getRowCount(), index.getRowCount());
+        for (int i = 0; i < rebuilt.getRowCount(); i++)
+            assertEquals(rebuilt.getRowType(i), index.getRowType(i));
+        assertEquals(pinnedChild, index.getRowType(5));
+        assertEquals(pinnedChild, index.getRowType(9));
+        assertEquals("Arnold", index.getItem(5));
+        assertEquals("Arno", index.getItem(9));
+        assertNull(index.getItem(8));
+        assertEquals(pinnedSection, index.getRowType(11));
+        assertEquals("C", index.getItem(11));
+    }
+
+    @Test
+    public void collapsingProducesOneRangeAndKeepsMapping() throws Exception {
+        SectionIndex<String, String> index = new SectionIndex<>(createGroupedData(), true);
+        final List<int[]> updates = new ArrayList<>();
+        RowUpdateCallback callback = new RowUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                updates.add(new int[]{1, position, count});
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                updates.add(new int[]{-1, position, count});
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                updates.add(new int[]{0, fromPosition, toPosition});
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+            }
+        };
+
+        index.collapseSection(0, callback);
+        assertEquals(1, updates.size());
+        assertArrayEquals(new int[]{-1, 1, 5}, updates.get(0));
+        assertEquals(Arrays.<Object>asList("A", "B", "C", "Carl"), rowsOf(index));
+        assertEquals(2, index.getSectionForPosition(2));
+        assertEquals(3, index.getGlobalChildPosition(3));
+        assertEquals(-1, index.getPositionForChild(0, 1));
+
+        // Children of a collapsed section are modified without row updates.
+        index.insertChild(0, 0, "Aaron", callback);
+        index.removeChild(0, 3, callback);
+        assertEquals(1, updates.size());
+        assertEquals(4, index.getRowCount());
+
+        index.expandSection(0, callback);
+        assertEquals(2, updates.size());
+        assertArrayEquals(new int[]{1, 1, 5}, updates.get(1));
+
+        SectionIndex<String, String> rebuilt = new SectionIndex<>(index.getGroupedData(), true);
+        assertEquals(rowsOf(rebuilt), rowsOf(index));
+        for (int row = 0; row < rebuilt.getRowCount(); row++)
+            assertEquals(rebuilt.getRowType(row), index.getRowType(row));
+
+        rebuilt.collapseSections(Arrays.asList("A", "C"));
+        assertEquals(Arrays.<Object>asList("A", "B", "C"), rowsOf(rebuilt));
+        assertEquals(Arrays.asList("A", "C"), rebuilt.getCollapsedSectionKeys());
+    }
+
+    @Test
+    public void aggregatesFollowModifications() throws Exception {
+        SectionAggregator.ValueExtractor<String> length = new SectionAggregator.ValueExtractor<String>() {
+            @Override
+            public long getValue(String value) {
+                return value.length();
+            }
+        };
+        final List<SectionAggregator<String>> aggregators = Arrays.asList(
+                SectionAggregator.count(new SectionAggregator.Matcher<String>() {
+                    @Override
+                    public boolean matches(String value) {
+                        return value.endsWith("a");
+                    }
+                }),
+                SectionAggregator.sum(length),
+                SectionAggregator.min(length),
+                SectionAggregator.max(length));
+
+        final SectionIndex<String, String> index = new SectionIndex<>(createGroupedData(), false);
+        index.setAggregators(aggregators);
+        index.collapseSection(1, null);
+
+        new RandomModifications<String>(7, index, null) {
+            @Override
+            String newValue(int step) {
+                return "Name".substring(0, 1 + random.nextInt(4)) + (random.nextBoolean() ? "a" : "");
+            }
+
+            @Override
+            void afterModification(int step) {
+                SectionIndex<String, String> rebuilt = new SectionIndex<>(index.getGroupedData(), false);
+                rebuilt.setAggregators(aggregators);
+                for (int s = 0; s < index.getSectionCount(); s++) {
+                    for (int aggregator = 0; aggregator < aggregators.size(); aggregator++)
+                        assertEquals(rebuilt.getAggregate(s, aggregator), index.getAggregate(s, aggregator));
+                }
+            }
+        }.run(500);
+    }
+
+    @Test
+    public void refreshesAggregatesOfChildrenChangedInPlace() throws Exception {
+        LinkedHashMap<String, List<StringBuilder>> groupedData = new LinkedHashMap<>();
+        groupedData.put("A", Arrays.asList(new StringBuilder("Anna"), new StringBuilder("Axel")));
+        SectionIndex<String, StringBuilder> index = new SectionIndex<>(groupedData, false);
+        index.setAggregators(Collections.singletonList(SectionAggregator.sum(new SectionAggregator.ValueExtractor<StringBuilder>() {
+            @Override
+            public long getValue(StringBuilder value) {
+                return value.length();
+            }
+        })));
+
+        index.getChild(0, 1).append("ander");
+        assertEquals(8, index.getAggregate(0, 0));
+        index.refreshAggregates(0);
+        assertEquals(13, index.getAggregate(0, 0));
+    }
+
+    @Test
+    public void skipsAggregatesOfLazyValues() throws Exception {
+        class Unloaded extends AbstractList<String> implements SectionIndex.LazyValues {
+            @Override
+            public String get(int location) {
+                throw new AssertionError("Lazy values must not be loaded by the aggregation.");
+            }
+
+            @Override
+            public int size() {
+                return 3;
+            }
+        }
+
+        LinkedHashMap<String, List<String>> groupedData = createGroupedData();
+        groupedData.put("L", new Unloaded());
+        SectionIndex<String, String> index = new SectionIndex<>(groupedData, false);
+        index.setAggregators(Collections.singletonList(SectionAggregator.count(new SectionAggregator.Matcher<String>() {
+            @Override
+            public boolean matches(String value) {
+                return value.startsWith("A");
+            }
+        })));
+
+        assertEquals(3, index.getAggregate(0, 0));
+        assertEquals(0, index.getAggregate(3, 0));
+    }
+}
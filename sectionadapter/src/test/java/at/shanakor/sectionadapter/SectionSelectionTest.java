@@ -0,0 +1,127 @@
+package at.shanakor.sectionadapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SectionSelectionTest {
+    private static final IdExtractor<Integer> IDS = new IdExtractor<Integer>() {
+        @Override
+        public long getId(Integer item) {
+            return item;
+        }
+    };
+
+    @Test
+    public void followsModificationsAndReloads() throws Exception {
+        LinkedHashMap<String, List<Integer>> groupedData = new LinkedHashMap<>();
+        int nextValue = 0;
+        for (int section = 0; section < 4; section++) {
+            List<Integer> values = new ArrayList<>();
+            for (int i = 0; i < 50 + 30 * section; i++)
+                values.add(nextValue++);
+            groupedData.put("S" + section, values);
+        }
+
+        final SectionIndex<String, Integer> index = new SectionIndex<>(groupedData, true);
+        final SectionSelection<String, Integer> selection = new SectionSelection<>();
+        selection.onIndexReplaced(index, IDS);
+
+        selection.selectSection(1);
+        selection.toggle(0);
+        selection.toggle(200);
+        final Set<Integer> expected = new HashSet<>(groupedData.get("S1"));
+        expected.add(0);
+        expected.add(200);
+        assertEquals(82, selection.getSelectedCount());
+        assertTrue(selection.isSectionSelected(1));
+        assertEquals(1, selection.getSelectedCount(2));
+
+        final int[] next = {nextValue};
+        new RandomModifications<Integer>(42, index, null) {
+            @Override
+            Integer newValue(int step) {
+                return next[0]++;
+            }
+
+            @Override
+            void onChildInserted(int section, int positionInSection) {
+                selection.onChildInserted(index.getGlobalChildPositionForSection(section) + positionInSection);
+            }
+
+            @Override
+            void onChildRemoved(int section, int positionInSection, Integer value) {
+                expected.remove(value);
+                selection.onChildRemoved(section, index.getGlobalChildPositionForSection(section) + positionInSection);
+            }
+
+            @Override
+            void onChildSet(Integer oldValue, Integer newValue) {
+                if(expected.remove(oldValue))
+                    expected.add(newValue);
+            }
+
+            @Override
+            void onChildMoved(int fromSection, int fromGlobalChildPosition, int toSection, int toPosition) {
+                selection.onChildMoved(fromSection, fromGlobalChildPosition, index.getGlobalChildPositionForSection(toSection) + toPosition);
+            }
+
+            @Override
+            void onSectionInserted(int section, int childCount) {
+                selection.onSectionInserted(section, index.getGlobalChildPositionForSection(section), childCount);
+            }
+
+            @Override
+            void onSectionRemoved(int section, int globalChildPosition, List<Integer> values) {
+                expected.removeAll(values);
+                selection.onSectionRemoved(section, globalChildPosition, values.size());
+            }
+
+            @Override
+            void afterModification(int step) {
+                int globalChildPosition = random.nextInt(index.getChildCount() + 1);
+                if(globalChildPosition < index.getChildCount()) {
+                    Integer value = valueAt(index, globalChildPosition);
+                    if(selection.toggle(globalChildPosition))
+                        expected.add(value);
+                    else
+                        expected.remove(value);
+                }
+
+                Set<Integer> selected = new HashSet<>();
+                for (int position : selection.getSelectedPositions())
+                    selected.add(valueAt(index, position));
+                assertEquals(expected, selected);
+
+                // The per-section counts match a selection which has been set up from scratch.
+                SectionSelection<String, Integer> reloaded = new SectionSelection<>();
+                reloaded.onIndexReplaced(index, IDS);
+                for (int position : selection.getSelectedPositions())
+                    reloaded.setSelected(position, true);
+
+                for (int s = 0; s < index.getSectionCount(); s++)
+                    assertEquals(reloaded.getSelectedCount(s), selection.getSelectedCount(s));
+                assertEquals(reloaded.getSelectedCount(), selection.getSelectedCount());
+            }
+        }.run(300);
+
+        // A reload carries the selection over by the ids of the values.
+        SectionIndex<String, Integer> reloadedIndex = new SectionIndex<>(index.getGroupedData(), false);
+        selection.onIndexReplaced(reloadedIndex, IDS);
+        assertEquals(expected.size(), selection.getSelectedCount());
+
+        selection.deselectSection(0);
+        assertEquals(0, selection.getSelectedCount(0));
+    }
+
+    private static Integer valueAt(SectionIndex<String, Integer> index, int globalChildPosition) {
+        int section = index.getSectionForGlobalChild(globalChildPosition);
+        return index.getChild(section, globalChildPosition - index.getGlobalChildPositionForSection(section));
+    }
+}